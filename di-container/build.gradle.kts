@@ -9,8 +9,17 @@ repositories {
     mavenCentral()
 }
 
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[jmh.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
 dependencies {
     implementation("jakarta.inject:jakarta.inject-api:2.0.1")
+    implementation("jakarta.annotation:jakarta.annotation-api:2.1.1")
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.9.3")
     testImplementation("org.junit.jupiter:junit-jupiter-params:5.9.3")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.9.3")
@@ -18,6 +27,9 @@ dependencies {
     testRuntimeOnly("org.junit.platform:junit-platform-runner:1.9.3")
     testImplementation("org.mockito:mockito-core:5.3.1")
     testImplementation("jakarta.inject:jakarta.inject-tck:2.0.1")
+    testImplementation(project(":processor"))
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 tasks.withType<Test>() {
@@ -27,3 +39,26 @@ tasks.withType<Test>() {
 tasks.test {
     useJUnitPlatform()
 }
+
+tasks.register<JavaExec>("jmh") {
+    description = "Runs the JMH benchmarks and writes the results as JSON."
+    group = "benchmark"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val results = layout.buildDirectory.file("reports/jmh/results.json")
+    outputs.file(results)
+    outputs.upToDateWhen { false }
+    doFirst {
+        results.get().asFile.parentFile.mkdirs()
+        args("-rf", "json", "-rff", results.get().asFile.absolutePath)
+        (project.findProperty("jmhArgs") as String?)?.let { args(it.split(" ")) }
+    }
+}
+
+tasks.register<JavaExec>("stress") {
+    description = "Resolves overlapping graphs from thousands of threads and reports throughput and latency."
+    group = "benchmark"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.fufeng.tdd.ContentionHarness")
+    (project.findProperty("stressArgs") as String?)?.let { args(it.split(" ")) }
+}
@@ -0,0 +1,228 @@
+package org.fufeng.tdd.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.*;
+
+import static javax.lang.model.element.Modifier.*;
+
+@SupportedAnnotationTypes(ComponentFactoryProcessor.INJECT)
+public class ComponentFactoryProcessor extends AbstractProcessor {
+    static final String INJECT = "jakarta.inject.Inject";
+    static final String QUALIFIER = "jakarta.inject.Qualifier";
+    static final String SUFFIX = "$$Factory";
+
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        Set<TypeElement> components = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : round.getElementsAnnotatedWith(annotation)) {
+                if (element.getEnclosingElement() instanceof TypeElement component) components.add(component);
+            }
+        }
+        for (TypeElement component : components) {
+            if (generated.add(component.getQualifiedName().toString())) getInjectionPlan(component).ifPresent(this::write);
+        }
+        return false;
+    }
+
+    private Optional<InjectionPlan> getInjectionPlan(TypeElement component) {
+        if (component.getKind() != ElementKind.CLASS || component.getModifiers().contains(ABSTRACT)) return Optional.empty();
+        if (component.getNestingKind() == NestingKind.LOCAL || component.getNestingKind() == NestingKind.ANONYMOUS) return Optional.empty();
+        if (component.getNestingKind() == NestingKind.MEMBER && !component.getModifiers().contains(STATIC)) return Optional.empty();
+        if (!component.getTypeParameters().isEmpty() || !isAccessible(component, component)) return Optional.empty();
+
+        ExecutableElement constructor = getInjectConstructor(component);
+        List<VariableElement> fields = getInjectFields(component);
+        List<ExecutableElement> methods = getInjectMethods(component);
+        if (constructor == null || fields == null || methods == null) return Optional.empty();
+        return Optional.of(new InjectionPlan(component, constructor, fields, methods));
+    }
+
+    private ExecutableElement getInjectConstructor(TypeElement component) {
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(component.getEnclosedElements());
+        List<ExecutableElement> injectConstructors = constructors.stream().
+                filter(constructor -> constructor.getModifiers().contains(PUBLIC) && isInject(constructor)).toList();
+        if (injectConstructors.size() > 1) return null;
+
+        ExecutableElement constructor = injectConstructors.stream().findFirst().orElseGet(() -> constructors.stream().
+                filter(it -> it.getParameters().isEmpty()).findFirst().orElse(null));
+        if (constructor == null || !isAccessible(constructor, component) || isQualified(constructor)) return null;
+        return constructor;
+    }
+
+    private List<VariableElement> getInjectFields(TypeElement component) {
+        List<VariableElement> fields = new ArrayList<>();
+        for (TypeElement current : hierarchy(component)) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (!isInject(field)) continue;
+                if (field.getModifiers().contains(FINAL) || field.getModifiers().contains(STATIC)) return null;
+                if (!isAccessible(field, component) || hasQualifier(field)) return null;
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private List<ExecutableElement> getInjectMethods(TypeElement component) {
+        List<ExecutableElement> overriding = ElementFilter.methodsIn(component.getEnclosedElements()).stream().
+                filter(method -> !isInject(method)).toList();
+        List<ExecutableElement> methods = new ArrayList<>();
+        for (TypeElement current : hierarchy(component)) {
+            List<ExecutableElement> declared = new ArrayList<>();
+            for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+                if (!isInject(method)) continue;
+                if (methods.stream().anyMatch(it -> isOverride(it, method))) continue;
+                if (overriding.stream().anyMatch(it -> isOverride(it, method))) continue;
+                if (!method.getTypeParameters().isEmpty() || method.getModifiers().contains(STATIC)) return null;
+                if (!isAccessible(method, component) || isQualified(method)) return null;
+                declared.add(method);
+            }
+            methods.addAll(declared);
+        }
+        Collections.reverse(methods);
+        return methods;
+    }
+
+    private List<TypeElement> hierarchy(TypeElement component) {
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement current = component; current != null && !current.getQualifiedName().contentEquals("java.lang.Object"); ) {
+            hierarchy.add(current);
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return hierarchy;
+    }
+
+    private boolean isOverride(ExecutableElement method, ExecutableElement other) {
+        if (!method.getSimpleName().contentEquals(other.getSimpleName())) return false;
+        if (method.getParameters().size() != other.getParameters().size()) return false;
+        for (int i = 0; i < method.getParameters().size(); i++) {
+            TypeMirror type = processingEnv.getTypeUtils().erasure(method.getParameters().get(i).asType());
+            TypeMirror otherType = processingEnv.getTypeUtils().erasure(other.getParameters().get(i).asType());
+            if (!processingEnv.getTypeUtils().isSameType(type, otherType)) return false;
+        }
+        return true;
+    }
+
+    private boolean isAccessible(Element element, TypeElement component) {
+        PackageElement target = processingEnv.getElementUtils().getPackageOf(component);
+        for (Element current = element; current instanceof TypeElement || current instanceof ExecutableElement || current instanceof VariableElement;
+             current = current.getEnclosingElement()) {
+            if (current.getModifiers().contains(PRIVATE)) return false;
+            if (current.getModifiers().contains(PUBLIC)) continue;
+            if (!processingEnv.getElementUtils().getPackageOf(current).equals(target)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isInject(Element element) {
+        return element.getAnnotationMirrors().stream().
+                anyMatch(annotation -> ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(INJECT));
+    }
+
+    private static boolean isQualified(ExecutableElement executable) {
+        return executable.getParameters().stream().anyMatch(ComponentFactoryProcessor::hasQualifier);
+    }
+
+    private static boolean hasQualifier(Element element) {
+        return element.getAnnotationMirrors().stream().
+                map(annotation -> annotation.getAnnotationType().asElement()).
+                anyMatch(annotation -> annotation.getAnnotationMirrors().stream().
+                        anyMatch(meta -> ((TypeElement) meta.getAnnotationType().asElement()).getQualifiedName().contentEquals(QUALIFIER)));
+    }
+
+    private void write(InjectionPlan plan) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(plan.component()).getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(plan.component()).toString();
+        String factoryName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + SUFFIX;
+        String componentType = plan.component().getQualifiedName().toString();
+
+        boolean throwing = !plan.constructor().getThrownTypes().isEmpty() || plan.methods().stream().anyMatch(method -> !method.getThrownTypes().isEmpty());
+        String indent = throwing ? "            " : "        ";
+        List<TypeMirror> dependencies = new ArrayList<>();
+        StringBuilder create = new StringBuilder();
+        create.append(indent).append(componentType).append(" instance = new ").append(componentType).append("(").
+                append(arguments(plan.constructor(), dependencies)).append(");\n");
+        for (VariableElement field : plan.fields()) {
+            create.append(indent).append("((").append(((TypeElement) field.getEnclosingElement()).getQualifiedName()).append(") instance).").
+                    append(field.getSimpleName()).append(" = ").append(argument(field.asType(), dependencies)).append(";\n");
+        }
+        for (ExecutableElement method : plan.methods()) {
+            create.append(indent).append("instance.").append(method.getSimpleName()).append("(").append(arguments(method, dependencies)).append(");\n");
+        }
+        create.append(indent).append("return instance;\n");
+        if (throwing) {
+            create.insert(0, "        try {\n").
+                    append("        } catch (RuntimeException | Error e) {\n").
+                    append("            throw e;\n").
+                    append("        } catch (Throwable e) {\n").
+                    append("            throw new RuntimeException(e);\n").
+                    append("        }\n");
+        }
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) source.append("package ").append(packageName).append(";\n\n");
+        source.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n").
+                append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n").
+                append("public final class ").append(factoryName).append(" implements org.fufeng.tdd.ComponentFactory<").append(componentType).append("> {\n").
+                append("    private static final java.util.List<org.fufeng.tdd.ComponentRef> DEPENDENCIES = java.util.List.of(");
+        for (int i = 0; i < dependencies.size(); i++) {
+            source.append(i == 0 ? "\n            " : ",\n            ").append(componentRef(dependencies.get(i)));
+        }
+        source.append(");\n\n").
+                append("    @Override\n").
+                append("    public ").append(componentType).append(" create(java.util.function.IntFunction<Object> dependencies) {\n").
+                append(create).
+                append("    }\n\n").
+                append("    @Override\n").
+                append("    public java.util.List<org.fufeng.tdd.ComponentRef> getDependencies() {\n").
+                append("        return DEPENDENCIES;\n").
+                append("    }\n").
+                append("}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? factoryName : packageName + "." + factoryName, plan.component()).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String arguments(ExecutableElement executable, List<TypeMirror> dependencies) {
+        StringJoiner arguments = new StringJoiner(", ");
+        for (VariableElement parameter : executable.getParameters()) arguments.add(argument(parameter.asType(), dependencies));
+        return arguments.toString();
+    }
+
+    private static String argument(TypeMirror type, List<TypeMirror> dependencies) {
+        dependencies.add(type);
+        return "(" + type + ") dependencies.apply(" + (dependencies.size() - 1) + ")";
+    }
+
+    private String componentRef(TypeMirror type) {
+        if (type instanceof DeclaredType declared && !declared.getTypeArguments().isEmpty())
+            return "new org.fufeng.tdd.ComponentRef<" + type + ">() {\n            }";
+        return "org.fufeng.tdd.ComponentRef.of(" + processingEnv.getTypeUtils().erasure(type) + ".class)";
+    }
+
+    private record InjectionPlan(TypeElement component, ExecutableElement constructor,
+                                 List<VariableElement> fields, List<ExecutableElement> methods) {
+    }
+}
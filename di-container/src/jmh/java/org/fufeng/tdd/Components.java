@@ -0,0 +1,136 @@
+package org.fufeng.tdd;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+
+import java.lang.annotation.Annotation;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Components {
+
+    public static ContextConfig configure(ContextConfig config) {
+        config.bind(Leaf.class, Leaf.class);
+        config.bind(Service.class, Qualified.class);
+        config.bind(ConstructorInjected.class, ConstructorInjected.class);
+        config.bind(FieldInjected.class, FieldInjected.class);
+        config.bind(MethodInjected.class, MethodInjected.class);
+        config.bind(Level1.class, Level1.class);
+        config.bind(Level2.class, Level2.class, new SingletonLiteral());
+        config.bind(Level3.class, Level3.class);
+        config.bind(Level4.class, Level4.class, new SingletonLiteral());
+        config.bind(Level5.class, Level5.class);
+        config.bind(SharedCache.class, SharedCache.class, new SingletonLiteral());
+        config.bind(Gateway.class, Gateway.class);
+        return config;
+    }
+
+    public interface Service {
+    }
+
+    public static class Leaf implements Service {
+    }
+
+    public static class ConstructorInjected {
+        final Leaf leaf;
+
+        @Inject
+        public ConstructorInjected(Leaf leaf) {
+            this.leaf = leaf;
+        }
+    }
+
+    public static class FieldInjected {
+        @Inject
+        Leaf leaf;
+    }
+
+    public static class MethodInjected {
+        Leaf leaf;
+
+        @Inject
+        public void install(Leaf leaf) {
+            this.leaf = leaf;
+        }
+    }
+
+    public static class Level1 {
+        @Inject
+        public Level1(Leaf leaf, ConstructorInjected constructor, FieldInjected field, MethodInjected method) {
+        }
+    }
+
+    public static class Level2 {
+        @Inject
+        public Level2(Level1 level, Leaf leaf, ConstructorInjected constructor) {
+        }
+    }
+
+    public static class Level3 {
+        @Inject
+        public Level3(Level2 level, Level1 sibling, FieldInjected field) {
+        }
+    }
+
+    public static class Level4 {
+        @Inject
+        public Level4(Level3 level, Level2 sibling, MethodInjected method) {
+        }
+    }
+
+    public static class Level5 {
+        @Inject
+        public Level5(Level4 level, Level3 sibling, Leaf leaf) {
+        }
+    }
+
+    public static class Qualified implements Service {
+        @Inject
+        public Qualified(Leaf leaf) {
+        }
+    }
+
+    public static class SharedCache {
+        static final AtomicInteger created = new AtomicInteger();
+
+        @Inject
+        public SharedCache(Level2 level, Leaf leaf) {
+            created.incrementAndGet();
+        }
+    }
+
+    public static class Gateway {
+        final SharedCache cache;
+
+        @Inject
+        public Gateway(SharedCache cache, Level5 level, Service service) {
+            this.cache = cache;
+        }
+    }
+
+    record SingletonLiteral() implements Singleton {
+        @Override
+        public Class<? extends Annotation> annotationType() {
+            return Singleton.class;
+        }
+    }
+
+    record NamedLiteral(String value) implements Named {
+        @Override
+        public Class<? extends Annotation> annotationType() {
+            return Named.class;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Named named) return Objects.equals(named.value(), value);
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return "value".hashCode() * 127 ^ value.hashCode();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.fufeng.tdd;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Scope;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.fufeng.tdd.Components.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(1)
+public class ContentionBenchmark {
+
+    private Context context;
+    private LiveContext live;
+
+    @Setup
+    public void setup() {
+        context = configure(new ContextConfig()).getContext();
+        live = configure(new ContextConfig()).getLiveContext();
+    }
+
+    @Benchmark
+    public Object singleton() {
+        return context.get(ComponentRef.of(SharedCache.class)).get();
+    }
+
+    @Benchmark
+    public Object overlappingGraph() {
+        return context.get(ComponentRef.of(Gateway.class)).get();
+    }
+
+    @Benchmark
+    public Object liveContext() {
+        return live.get(ComponentRef.of(Gateway.class)).get();
+    }
+}
@@ -0,0 +1,82 @@
+package org.fufeng.tdd;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.invoke.MethodType.methodType;
+import static org.fufeng.tdd.Components.*;
+
+public class ContentionHarness {
+    private static final List<ComponentRef<?>> ROOTS = List.of(ComponentRef.of(Level1.class), ComponentRef.of(Level3.class),
+            ComponentRef.of(Level5.class), ComponentRef.of(SharedCache.class), ComponentRef.of(Gateway.class));
+
+    public static void main(String[] args) throws Throwable {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        Context context = configure(new ContextConfig()).getContext();
+
+        long[][] latencies = new long[threads][iterations];
+        Set<Object> caches = ConcurrentHashMap.newKeySet();
+        LongAdder failures = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = newExecutor();
+        List<Future<?>> tasks = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            long[] samples = latencies[t];
+            int offset = t;
+            tasks.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    ComponentRef<?> root = ROOTS.get((offset + i) % ROOTS.size());
+                    long begin = System.nanoTime();
+                    Object instance = context.get(root).orElse(null);
+                    samples[i] = System.nanoTime() - begin;
+                    if (instance == null) failures.increment();
+                    else if (instance instanceof Gateway gateway) caches.add(gateway.cache);
+                    else if (instance instanceof SharedCache cache) caches.add(cache);
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> task : tasks) task.get();
+        long elapsed = System.nanoTime() - begin;
+        executor.shutdown();
+
+        long[] sorted = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("threads: %d (%s), operations: %d%n", threads, isVirtual() ? "virtual" : "platform pool", sorted.length);
+        System.out.printf("throughput: %.0f ops/s%n", sorted.length / (elapsed / 1e9));
+        System.out.printf("latency us: p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n", percentile(sorted, 0.5),
+                percentile(sorted, 0.9), percentile(sorted, 0.99), percentile(sorted, 0.999), sorted[sorted.length - 1] / 1e3);
+        System.out.printf("singletons: created %d, observed %d, failed lookups %d%n", SharedCache.created.get(), caches.size(), failures.sum());
+        if (SharedCache.created.get() != 1 || caches.size() != 1 || failures.sum() != 0) System.exit(1);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e3;
+    }
+
+    private static ExecutorService newExecutor() throws Throwable {
+        MethodHandle virtual = virtualExecutor();
+        if (virtual != null) return (ExecutorService) virtual.invokeExact();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    private static boolean isVirtual() {
+        return virtualExecutor() != null;
+    }
+
+    private static MethodHandle virtualExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", methodType(ExecutorService.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
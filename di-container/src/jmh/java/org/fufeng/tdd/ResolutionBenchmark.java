@@ -0,0 +1,88 @@
+package org.fufeng.tdd;
+
+import jakarta.inject.Provider;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Scope;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.fufeng.tdd.Components.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolutionBenchmark {
+
+    private static final ComponentRef<Provider<Level5>> PROVIDER = new ComponentRef<>() {
+    };
+
+    private Context context;
+    private Provider<Level5> provider;
+    private Resolver<Level5> resolver;
+
+    @Setup
+    public void setup() {
+        ContextConfig config = new ContextConfig();
+        config.bind(Leaf.class, Leaf.class);
+        config.bind(ConstructorInjected.class, ConstructorInjected.class);
+        config.bind(FieldInjected.class, FieldInjected.class);
+        config.bind(MethodInjected.class, MethodInjected.class);
+        config.bind(Level1.class, Level1.class);
+        config.bind(Level2.class, Level2.class);
+        config.bind(Level3.class, Level3.class);
+        config.bind(Level4.class, Level4.class);
+        config.bind(Level5.class, Level5.class);
+        config.bind(Service.class, Qualified.class, new NamedLiteral("qualified"));
+        context = config.getContext();
+        provider = context.get(PROVIDER).get();
+        resolver = context.resolver(ComponentRef.of(Level5.class)).get();
+    }
+
+    @Benchmark
+    public Object resolver() {
+        return resolver.get();
+    }
+
+    @Benchmark
+    public Object shallow() {
+        return context.get(ComponentRef.of(Leaf.class)).get();
+    }
+
+    @Benchmark
+    public Object deep() {
+        return context.get(ComponentRef.of(Level5.class)).get();
+    }
+
+    @Benchmark
+    public Object constructorInjection() {
+        return context.get(ComponentRef.of(ConstructorInjected.class)).get();
+    }
+
+    @Benchmark
+    public Object fieldInjection() {
+        return context.get(ComponentRef.of(FieldInjected.class)).get();
+    }
+
+    @Benchmark
+    public Object methodInjection() {
+        return context.get(ComponentRef.of(MethodInjected.class)).get();
+    }
+
+    @Benchmark
+    public Object providerLookup() {
+        return context.get(PROVIDER).get().get();
+    }
+
+    @Benchmark
+    public Object providerGet() {
+        return provider.get();
+    }
+
+    @Benchmark
+    public Object qualifiedLookup() {
+        return context.get(ComponentRef.of(Service.class, new NamedLiteral("qualified"))).get();
+    }
+}
@@ -0,0 +1,125 @@
+package org.fufeng.tdd;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Scope;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    @Param({"100", "1000"})
+    public int components;
+
+    private Path classes;
+    private Path snapshot;
+    private ContextConfig config;
+
+    @Setup(Level.Trial)
+    public void compile() throws IOException {
+        classes = Files.createTempDirectory("startup");
+        List<String> sources = new ArrayList<>();
+        sources.add(write("Base", """
+                public abstract class Base {
+                    @jakarta.inject.Inject
+                    void initialize() {
+                    }
+
+                    public void close() {
+                    }
+                }
+                """));
+        for (int i = 0; i < components; i++) sources.add(write("Component" + i, component(i)));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> arguments = new ArrayList<>(List.of("-d", classes.toString(), "-cp", System.getProperty("java.class.path")));
+        arguments.addAll(sources);
+        if (compiler.run(null, null, null, arguments.toArray(String[]::new)) != 0) throw new IllegalStateException("failed to compile components");
+
+        snapshot = classes.resolve("context.snapshot");
+        configure().getContext(snapshot);
+    }
+
+    @Setup(Level.Iteration)
+    public void load() throws IOException {
+        config = configure();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(classes)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(file);
+        }
+    }
+
+    @Benchmark
+    public Context getContext() {
+        return config.getContext();
+    }
+
+    @Benchmark
+    public Context getContextFromSnapshot() {
+        return config.getContext(snapshot);
+    }
+
+    private ContextConfig configure() throws IOException {
+        ClassLoader loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, SnapshotBenchmark.class.getClassLoader());
+        ContextConfig config = new ContextConfig();
+        try {
+            for (int i = 0; i < components; i++) {
+                bind(config, Class.forName("startup.Component" + i, false, loader));
+            }
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+        return config;
+    }
+
+    private static <Type> void bind(ContextConfig config, Class<Type> component) {
+        config.bind(component, (Class<? extends Type>) component);
+    }
+
+    private static String component(int index) {
+        if (index == 0) return "public class Component0 extends Base {\n}\n";
+        return """
+                public class Component%1$d extends Base {
+                    @jakarta.inject.Inject
+                    %3$s field;
+
+                    @jakarta.inject.Inject
+                    public Component%1$d(%2$s dependency, jakarta.inject.Provider<%3$s> provider) {
+                    }
+
+                    @jakarta.inject.Inject
+                    void install(%2$s dependency) {
+                    }
+
+                    public String name() {
+                        return "component-%1$d";
+                    }
+                }
+                """.formatted(index, "Component" + (index - 1), "Component" + index / 2);
+    }
+
+    private String write(String name, String body) throws IOException {
+        Path source = classes.resolve("src/startup/" + name + ".java");
+        Files.createDirectories(source.getParent());
+        Files.writeString(source, "package startup;\n\n" + body);
+        return source.toString();
+    }
+}
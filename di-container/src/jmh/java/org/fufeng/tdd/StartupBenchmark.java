@@ -0,0 +1,53 @@
+package org.fufeng.tdd;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.Scope;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.fufeng.tdd.Components.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int bindings;
+
+    private ContextConfig config;
+    private Path snapshot;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        config = new ContextConfig();
+        config.bind(Leaf.class, Leaf.class);
+        for (int i = 1; i < bindings; i++) {
+            config.bind(Service.class, Qualified.class, new NamedLiteral("service-" + i));
+        }
+        snapshot = Files.createTempFile("context", ".snapshot");
+        Files.delete(snapshot);
+        config.getContext(snapshot);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public Context getContext() {
+        return config.getContext();
+    }
+
+    @Benchmark
+    public Context getContextFromSnapshot() {
+        return config.getContext(snapshot);
+    }
+}
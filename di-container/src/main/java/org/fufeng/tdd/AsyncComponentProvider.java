@@ -0,0 +1,27 @@
+package org.fufeng.tdd;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public interface AsyncComponentProvider<T> extends ComponentProvider<T> {
+
+    @Override
+    CompletableFuture<T> getAsync(Context context);
+
+    @Override
+    default boolean isAsync(Context context) {
+        return true;
+    }
+
+    @Override
+    default T get(Context context) {
+        try {
+            return getAsync(context).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
+    }
+
+}
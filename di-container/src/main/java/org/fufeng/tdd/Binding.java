@@ -0,0 +1,41 @@
+package org.fufeng.tdd;
+
+import java.lang.annotation.Annotation;
+
+final class Binding {
+    private final Class<?> implementation;
+    private final Annotation scope;
+    private volatile ComponentProvider<?> provider;
+
+    Binding(ComponentProvider<?> provider, Annotation scope) {
+        this.implementation = null;
+        this.provider = provider;
+        this.scope = scope;
+    }
+
+    Binding(Class<?> implementation, Annotation scope) {
+        this.implementation = implementation;
+        this.scope = scope;
+    }
+
+    Class<?> implementation() {
+        return implementation;
+    }
+
+    Annotation scope() {
+        return scope;
+    }
+
+    ComponentProvider<?> provider() {
+        if (provider == null) provider = ContextConfig.getProvider(implementation);
+        return provider;
+    }
+
+    boolean resolved() {
+        return provider != null;
+    }
+
+    void restore(ComponentProvider<?> provider) {
+        if (this.provider == null) this.provider = provider;
+    }
+}
@@ -0,0 +1,4 @@
+package org.fufeng.tdd;
+
+public record CacheStatistics(long hits, long misses, long evictions) {
+}
@@ -0,0 +1,552 @@
+package org.fufeng.tdd;
+
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+final class CompiledContext implements Context {
+
+    private static final int[] NO_SLOTS = new int[0];
+
+    private final CompiledContext parent;
+    private final int base;
+    private final IdentityHashMap<Binding, Integer> bindings;
+    private final Map<Component, Integer> slots;
+    private final Map<Component, Integer> lists;
+    private final Map<Component, Integer> sets;
+    private final Map<Component, Integer> maps;
+    private final Map<Component, int[]> elements;
+    private final Map<Component, Map<String, Integer>> entries;
+    private final ComponentProvider<?>[] providers;
+    private final Optional<Resolver<Object>>[] resolvers;
+    private final boolean[] stable;
+    private final int[] free;
+    private final Queue<Destroyable> destroyables;
+
+    CompiledContext(CompiledContext parent, Map<Component, Binding> components, Map<Component, List<Binding>> elements,
+                    Map<Component, Map<String, Binding>> entries, Map<Class<?>, Scope> scopes, Map<Binding, Integer> levels,
+                    ContainerMetrics metrics) {
+        this.parent = parent;
+        this.base = parent == null ? 0 : parent.base + parent.providers.length;
+        this.bindings = new IdentityHashMap<>();
+        this.slots = new HashMap<>(components.size() * 4 / 3 + 1);
+        this.lists = new HashMap<>();
+        this.sets = new HashMap<>();
+        this.maps = new HashMap<>();
+        this.elements = new HashMap<>();
+        this.entries = new HashMap<>();
+        this.free = NO_SLOTS;
+        this.destroyables = new ConcurrentLinkedQueue<>();
+        Map<Binding, Component> labels = new IdentityHashMap<>();
+        components.forEach((component, binding) -> allocate(labels, binding, component));
+        elements.forEach((component, bindings) -> bindings.forEach(binding -> allocate(labels, binding, component)));
+        entries.forEach((component, bindings) -> bindings.values().forEach(binding -> allocate(labels, binding, component)));
+        components.forEach((component, binding) -> slots.put(component, bindings.get(binding)));
+
+        int size = bindings.size();
+        for (Component component : elements.keySet()) {
+            this.elements.put(component, merge(parent == null ? null : parent.elements(component), elements.get(component)));
+            lists.put(component, base + size++);
+            sets.put(component, base + size++);
+        }
+        for (Component component : entries.keySet()) {
+            this.entries.put(component, merge(parent == null ? null : parent.entries(component), entries.get(component)));
+            maps.put(component, base + size++);
+        }
+
+        this.providers = new ComponentProvider<?>[size];
+        this.resolvers = new Optional[size];
+        this.stable = new boolean[size];
+        bindings.forEach((binding, slot) -> link(binding, slot, labels.get(binding), scopes, levels, metrics));
+        this.elements.keySet().forEach(this::collectElements);
+        this.entries.keySet().forEach(this::collectEntries);
+    }
+
+    CompiledContext(CompiledContext previous, Map<Component, Binding> components, Map<Component, List<Binding>> elements,
+                    Map<Component, Map<String, Binding>> entries, Map<Class<?>, Scope> scopes, Map<Binding, Integer> levels,
+                    ContainerMetrics metrics, Changes changes) {
+        this.parent = previous.parent;
+        this.base = previous.base;
+        this.destroyables = previous.destroyables;
+        this.bindings = (IdentityHashMap<Binding, Integer>) previous.bindings.clone();
+        BitSet freed = new BitSet();
+        for (int slot : previous.free) freed.set(slot - base);
+        for (Binding binding : changes.removed()) {
+            Integer slot = bindings.remove(binding);
+            if (slot != null) freed.set(slot - base);
+        }
+
+        int[] size = {previous.providers.length};
+        Map<Component, Integer> slots = previous.slots;
+        for (Component component : changes.components()) {
+            Binding binding = components.get(component);
+            Integer before = previous.slots.get(component);
+            if (binding != null && !bindings.containsKey(binding)) {
+                int slot = before != null && freed.get(before - base) ? before - base : take(freed, size);
+                freed.clear(slot);
+                bindings.put(binding, base + slot);
+            }
+            Integer after = binding == null ? null : bindings.get(binding);
+            if (Objects.equals(before, after)) continue;
+            if (slots == previous.slots) slots = new HashMap<>(previous.slots);
+            if (after == null) slots.remove(component);
+            else slots.put(component, after);
+        }
+        for (Binding binding : changes.affected()) {
+            if (!bindings.containsKey(binding)) bindings.put(binding, base + take(freed, size));
+        }
+        this.slots = slots;
+
+        boolean collections = !changes.elements().isEmpty();
+        this.elements = collections ? new HashMap<>(previous.elements) : previous.elements;
+        this.lists = collections ? new HashMap<>(previous.lists) : previous.lists;
+        this.sets = collections ? new HashMap<>(previous.sets) : previous.sets;
+        for (Component component : changes.elements()) {
+            List<Binding> contributions = elements.getOrDefault(component, List.of());
+            if (contributions.isEmpty()) {
+                this.elements.remove(component);
+                Integer list = lists.remove(component);
+                Integer set = sets.remove(component);
+                if (list != null) freed.set(list - base);
+                if (set != null) freed.set(set - base);
+                continue;
+            }
+            this.elements.put(component, merge(null, contributions));
+            if (lists.containsKey(component)) continue;
+            lists.put(component, base + take(freed, size));
+            sets.put(component, base + take(freed, size));
+        }
+        boolean keyed = !changes.entries().isEmpty();
+        this.entries = keyed ? new HashMap<>(previous.entries) : previous.entries;
+        this.maps = keyed ? new HashMap<>(previous.maps) : previous.maps;
+        for (Component component : changes.entries()) {
+            Map<String, Binding> contributions = entries.getOrDefault(component, Map.of());
+            if (contributions.isEmpty()) {
+                this.entries.remove(component);
+                Integer map = maps.remove(component);
+                if (map != null) freed.set(map - base);
+                continue;
+            }
+            this.entries.put(component, merge(null, contributions));
+            if (!maps.containsKey(component)) maps.put(component, base + take(freed, size));
+        }
+
+        this.providers = Arrays.copyOf(previous.providers, size[0]);
+        this.resolvers = new Optional[size[0]];
+        this.stable = Arrays.copyOf(previous.stable, size[0]);
+        freed.stream().forEach(slot -> {
+            providers[slot] = null;
+            stable[slot] = false;
+        });
+        this.free = freed.stream().map(slot -> base + slot).toArray();
+        for (Binding binding : changes.affected()) link(binding, bindings.get(binding), changes.labels().apply(binding), scopes, levels, metrics);
+        for (Component component : changes.elements()) if (this.elements.containsKey(component)) collectElements(component);
+        for (Component component : changes.entries()) if (this.entries.containsKey(component)) collectEntries(component);
+    }
+
+    @Override
+    public <ComponentType> Optional<ComponentType> get(ComponentRef<ComponentType> componentRef) {
+        Integer slot = slotOf(componentRef);
+        if (slot == null) return Optional.empty();
+        if (componentRef.getContainer() == Provider.class) return (Optional<ComponentType>) resolver(slot);
+        if (componentRef.getContainer() == Lazy.class) return Optional.of((ComponentType) new LazyHolder(slot));
+        if (componentRef.getContainer() == ScopeHandle.class) return Optional.of((ComponentType) handle(slot));
+        if (componentRef.getContainer() == CompletableFuture.class) return Optional.of((ComponentType) future(slot));
+        return Optional.ofNullable((ComponentType) get(slot));
+    }
+
+    @Override
+    public <ComponentType> Optional<Resolver<ComponentType>> resolver(ComponentRef<ComponentType> componentRef) {
+        Integer slot = slotOf(componentRef);
+        if (slot == null) return Optional.empty();
+        if (componentRef.getContainer() == Provider.class) {
+            Provider<Object> provider = provider(slot);
+            return Optional.of(() -> (ComponentType) provider);
+        }
+        if (componentRef.getContainer() == Lazy.class) return Optional.of(() -> (ComponentType) new LazyHolder(slot));
+        if (componentRef.getContainer() == ScopeHandle.class) return Optional.of(() -> (ComponentType) handle(slot));
+        if (componentRef.getContainer() == CompletableFuture.class) return Optional.of(() -> (ComponentType) future(slot));
+        return (Optional) resolver(slot);
+    }
+
+    @Override
+    public Context createChild(ContextConfig overrides) {
+        return overrides.compile(this, WarmUp.NONE);
+    }
+
+    @Override
+    public void close() {
+        Map<Integer, List<Destroyable>> levels = new TreeMap<>(Comparator.reverseOrder());
+        for (Destroyable destroyable; (destroyable = destroyables.poll()) != null; ) {
+            levels.computeIfAbsent(destroyable.level(), it -> new ArrayList<>()).add(destroyable);
+        }
+        if (levels.isEmpty()) return;
+
+        Queue<RuntimeException> errors = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            for (List<Destroyable> level : levels.values()) {
+                CompletableFuture.allOf(level.stream().map(destroyable -> CompletableFuture.runAsync(destroyable::destroy, executor).
+                        exceptionally(e -> {
+                            errors.add(e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause()));
+                            return null;
+                        })).toArray(CompletableFuture[]::new)).join();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        if (errors.isEmpty()) return;
+        RuntimeException first = errors.poll();
+        errors.forEach(first::addSuppressed);
+        throw first;
+    }
+
+    boolean contains(ComponentRef<?> componentRef) {
+        return slotOf(componentRef) != null;
+    }
+
+    Object get(Binding binding) {
+        return get(bindings.get(binding));
+    }
+
+    int destroyables() {
+        return destroyables.size();
+    }
+
+    int size() {
+        return providers.length;
+    }
+
+    private void allocate(Map<Binding, Component> labels, Binding binding, Component component) {
+        if (bindings.putIfAbsent(binding, base + bindings.size()) == null) labels.put(binding, component);
+    }
+
+    private static int take(BitSet freed, int[] size) {
+        if (freed.isEmpty()) return size[0]++;
+        int slot = freed.nextSetBit(0);
+        freed.clear(slot);
+        return slot;
+    }
+
+    private void link(Binding binding, int slot, Component label, Map<Class<?>, Scope> scopes, Map<Binding, Integer> levels,
+                      ContainerMetrics metrics) {
+        stable[slot - base] = isStable(binding);
+        ContainerMetrics.ComponentMetrics instrument = metrics == null ? null : metrics.of(label);
+        Lifecycle lifecycle = Lifecycle.of(binding.implementation());
+        int level = levels.getOrDefault(binding, 0);
+        ComponentProvider<?> provider = scope(binding, scopes, link(binding.provider(), label, binding.scope(), level, lifecycle, instrument));
+        if (binding.scope() != null && !(binding.scope() instanceof Singleton)) destroyables.add(new Destroyable(provider::close, level));
+        if (instrument != null && provider instanceof ReclaimableProvider<?> reclaimable) instrument.cache(reclaimable);
+        providers[slot - base] = provider;
+    }
+
+    private void collectElements(Component component) {
+        int[] slots = elements.get(component);
+        boolean cacheable = Arrays.stream(slots).allMatch(this::isStable);
+        providers[lists.get(component) - base] = new CollectionProvider(List.class, slots, null, cacheable);
+        providers[sets.get(component) - base] = new CollectionProvider(Set.class, slots, null, cacheable);
+    }
+
+    private void collectEntries(Component component) {
+        Map<String, Integer> slots = entries.get(component);
+        int[] elements = slots.values().stream().mapToInt(Integer::intValue).toArray();
+        providers[maps.get(component) - base] = new CollectionProvider(Map.class, elements, slots.keySet().toArray(String[]::new),
+                Arrays.stream(elements).allMatch(this::isStable));
+    }
+
+    private Integer slotOf(ComponentRef<?> componentRef) {
+        Map<Component, Integer> index = indexOf(componentRef.getContainer());
+        if (index == null) return null;
+        Integer slot = index.get(componentRef.component());
+        if (slot == null && parent != null) return parent.slotOf(componentRef);
+        return slot;
+    }
+
+    private Map<Component, Integer> indexOf(Type container) {
+        if (container == null || container == Provider.class || container == Lazy.class || container == CompletableFuture.class ||
+                container == ScopeHandle.class) return slots;
+        if (container == List.class) return lists;
+        if (container == Set.class) return sets;
+        if (container == Map.class) return maps;
+        return null;
+    }
+
+    private int[] elements(Component component) {
+        int[] slots = elements.get(component);
+        if (slots == null && parent != null) return parent.elements(component);
+        return slots;
+    }
+
+    private Map<String, Integer> entries(Component component) {
+        Map<String, Integer> slots = entries.get(component);
+        if (slots == null && parent != null) return parent.entries(component);
+        return slots;
+    }
+
+    private int[] merge(int[] inherited, List<Binding> contributions) {
+        int offset = inherited == null ? 0 : inherited.length;
+        int[] slots = inherited == null ? new int[contributions.size()] : Arrays.copyOf(inherited, offset + contributions.size());
+        for (int i = 0; i < contributions.size(); i++) slots[offset + i] = bindings.get(contributions.get(i));
+        return slots;
+    }
+
+    private Map<String, Integer> merge(Map<String, Integer> inherited, Map<String, Binding> contributions) {
+        Map<String, Integer> slots = inherited == null ? new LinkedHashMap<>() : new LinkedHashMap<>(inherited);
+        contributions.forEach((key, binding) -> slots.put(key, bindings.get(binding)));
+        return slots;
+    }
+
+    private Object get(int slot) {
+        if (slot < base) return parent.get(slot);
+        return providers[slot - base].get(this);
+    }
+
+    private CompletableFuture<Object> future(int slot) {
+        if (slot < base) return parent.future(slot);
+        try {
+            return (CompletableFuture<Object>) providers[slot - base].getAsync(this);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private ScopeHandle<Object> handle(int slot) {
+        if (slot < base) return parent.handle(slot);
+        Object instance = get(slot);
+        return new Handle(instance, providers[slot - base] instanceof Releasable releasable ? releasable : null);
+    }
+
+    private boolean isAsync(int slot) {
+        if (slot < base) return parent.isAsync(slot);
+        return providers[slot - base].isAsync(this);
+    }
+
+    private Optional<Resolver<Object>> resolver(int slot) {
+        if (slot < base) return parent.resolver(slot);
+        Optional<Resolver<Object>> resolver = resolvers[slot - base];
+        if (resolver == null) resolvers[slot - base] = resolver = Optional.of(() -> get(slot));
+        return resolver;
+    }
+
+    private Object resolve(Type container, int slot) {
+        if (container == Provider.class) return provider(slot);
+        if (container == Lazy.class) return new LazyHolder(slot);
+        if (container == ScopeHandle.class) return handle(slot);
+        if (container == CompletableFuture.class) return future(slot);
+        return get(slot);
+    }
+
+    private Provider<Object> provider(int slot) {
+        return resolver(slot).get();
+    }
+
+    private boolean isStable(int slot) {
+        if (slot < base) return parent.isStable(slot);
+        return stable[slot - base];
+    }
+
+    private ComponentProvider<?> link(ComponentProvider<?> provider, Component component, Annotation scope, int level, Lifecycle lifecycle,
+                                      ContainerMetrics.ComponentMetrics metrics) {
+        if (!(provider instanceof ComponentFactory<?> factory)) return provider;
+
+        List<ComponentRef> dependencies = factory.getDependencies();
+        int[] targets = new int[dependencies.size()];
+        Type[] containers = new Type[dependencies.size()];
+        for (int i = 0; i < targets.length; i++) {
+            ComponentRef<?> dependency = dependencies.get(i);
+            targets[i] = slotOf(dependency);
+            containers[i] = dependency.getContainer();
+        }
+        return new LinkedProvider<>(factory, targets, containers, component, scope, level, lifecycle, metrics);
+    }
+
+    private static ComponentProvider<?> scope(Binding binding, Map<Class<?>, Scope> scopes, ComponentProvider<?> provider) {
+        if (binding.scope() == null) return provider;
+        return scopes.get(binding.scope().annotationType()).create(provider, binding.scope());
+    }
+
+    private static boolean isStable(Binding binding) {
+        if (binding.scope() == null) return binding.implementation() == null && !(binding.provider() instanceof AsyncComponentProvider);
+        return binding.scope().annotationType() == Singleton.class;
+    }
+
+    private static final class LinkedProvider<T> implements AsyncComponentProvider<T> {
+        private final ComponentFactory<T> factory;
+        private final int[] targets;
+        private final Type[] containers;
+        private final Component component;
+        private final Annotation scope;
+        private final int level;
+        private final Lifecycle lifecycle;
+        private final ContainerMetrics.ComponentMetrics metrics;
+        private volatile Boolean async;
+
+        LinkedProvider(ComponentFactory<T> factory, int[] targets, Type[] containers, Component component, Annotation scope, int level,
+                       Lifecycle lifecycle, ContainerMetrics.ComponentMetrics metrics) {
+            this.factory = factory;
+            this.targets = targets;
+            this.containers = containers;
+            this.component = component;
+            this.scope = scope;
+            this.level = level;
+            this.lifecycle = lifecycle;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public T get(Context context) {
+            if (isAsync(context)) return AsyncComponentProvider.super.get(context);
+            CompiledContext compiled = (CompiledContext) context;
+            return create(compiled, index -> compiled.resolve(containers[index], targets[index]));
+        }
+
+        @Override
+        public CompletableFuture<T> getAsync(Context context) {
+            CompiledContext compiled = (CompiledContext) context;
+            if (!isAsync(context)) return CompletableFuture.completedFuture(create(compiled, index -> compiled.resolve(containers[index], targets[index])));
+
+            CompletableFuture<?>[] arguments = new CompletableFuture<?>[targets.length];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = containers[i] == null ? compiled.future(targets[i]) : CompletableFuture.completedFuture(compiled.resolve(containers[i], targets[i]));
+            }
+            return CompletableFuture.allOf(arguments).thenApply(ignored -> create(compiled, index -> arguments[index].join()));
+        }
+
+        private T create(CompiledContext context, IntFunction<Object> dependencies) {
+            if (metrics != null) return metrics.record(scope, () -> construct(context, dependencies));
+            if (!ComponentCreated.enabled()) return construct(context, dependencies);
+            return ComponentCreated.record(component, scope, () -> construct(context, dependencies));
+        }
+
+        private T construct(CompiledContext context, IntFunction<Object> dependencies) {
+            T instance = factory.create(dependencies);
+            if (lifecycle == null) return instance;
+            lifecycle.postConstruct(instance);
+            if (scope instanceof Singleton && lifecycle.isDestroyable()) context.destroyables.add(new Destroyable(() -> lifecycle.preDestroy(instance), level));
+            return instance;
+        }
+
+        @Override
+        public void destroy(T instance) {
+            if (lifecycle != null && lifecycle.isDestroyable()) lifecycle.preDestroy(instance);
+        }
+
+        @Override
+        public boolean isAsync(Context context) {
+            Boolean async = this.async;
+            if (async == null) {
+                async = false;
+                for (int i = 0; i < targets.length && !async; i++) async = containers[i] == null && ((CompiledContext) context).isAsync(targets[i]);
+                this.async = async;
+            }
+            return async;
+        }
+
+        @Override
+        public List<ComponentRef> getDependencies() {
+            return factory.getDependencies();
+        }
+    }
+
+    private final class LazyHolder implements Lazy<Object> {
+        private final int slot;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Object instance;
+
+        LazyHolder(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public Object get() {
+            Object instance = this.instance;
+            if (instance != null) return instance;
+            lock.lock();
+            try {
+                if (this.instance == null) this.instance = CompiledContext.this.get(slot);
+                return this.instance;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Handle implements ScopeHandle<Object> {
+        private final Object instance;
+        private final Releasable releasable;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Handle(Object instance, Releasable releasable) {
+            this.instance = instance;
+            this.releasable = releasable;
+        }
+
+        @Override
+        public Object get() {
+            if (released.get()) throw new IllegalStateException("scope handle already released");
+            return instance;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true) && releasable != null) releasable.release(instance);
+        }
+    }
+
+    record Changes(Set<Binding> affected, Set<Binding> removed, Set<Component> components, Set<Component> elements,
+                   Set<Component> entries, Function<Binding, Component> labels) {
+    }
+
+    private record Destroyable(Runnable action, int level) {
+        void destroy() {
+            action.run();
+        }
+    }
+
+    private static final class CollectionProvider implements ComponentProvider<Object> {
+        private final Type container;
+        private final int[] elements;
+        private final String[] keys;
+        private final boolean cacheable;
+        private volatile Object collection;
+
+        CollectionProvider(Type container, int[] elements, String[] keys, boolean cacheable) {
+            this.container = container;
+            this.elements = elements;
+            this.keys = keys;
+            this.cacheable = cacheable;
+        }
+
+        @Override
+        public Object get(Context context) {
+            Object collection = this.collection;
+            if (collection != null) return collection;
+
+            Object[] values = new Object[elements.length];
+            for (int i = 0; i < values.length; i++) values[i] = ((CompiledContext) context).get(elements[i]);
+            collection = toCollection(values);
+            if (cacheable) this.collection = collection;
+            return collection;
+        }
+
+        private Object toCollection(Object[] values) {
+            if (container == List.class) return Collections.unmodifiableList(Arrays.asList(values));
+            if (container == Set.class) return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(values)));
+            Map<String, Object> map = new LinkedHashMap<>(values.length * 4 / 3 + 1);
+            for (int i = 0; i < values.length; i++) map.put(keys[i], values[i]);
+            return Collections.unmodifiableMap(map);
+        }
+    }
+}
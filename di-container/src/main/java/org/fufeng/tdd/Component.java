@@ -1,6 +1,22 @@
 package org.fufeng.tdd;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
 
-public record Component(Class<?> type, Annotation qualifier) {
+public record Component(Type type, Annotation qualifier) {
+
+    public Component {
+        type = Types.canonical(type);
+        qualifier = Qualifiers.canonical(qualifier);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Component component && component.type == type && component.qualifier == qualifier;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * type.hashCode() + Qualifiers.hash(qualifier);
+    }
 }
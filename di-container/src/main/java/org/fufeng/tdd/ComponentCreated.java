@@ -0,0 +1,52 @@
+package org.fufeng.tdd;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.lang.annotation.Annotation;
+import java.util.function.Supplier;
+
+@Name("org.fufeng.tdd.ComponentCreated")
+@Label("Component Created")
+@Category("DI Container")
+final class ComponentCreated extends Event {
+    @Label("Component")
+    String component;
+
+    @Label("Qualifier")
+    String qualifier;
+
+    @Label("Scope")
+    String scope;
+
+    @Label("Resolution Depth")
+    int depth;
+
+    private static final ThreadLocal<int[]> depths = ThreadLocal.withInitial(() -> new int[1]);
+
+    static boolean enabled() {
+        return new ComponentCreated().isEnabled();
+    }
+
+    static <T> T record(Component component, Annotation scope, Supplier<T> creation) {
+        ComponentCreated event = new ComponentCreated();
+        if (!event.isEnabled()) return creation.get();
+        int[] current = depths.get();
+        int level = current[0]++;
+        event.begin();
+        try {
+            return creation.get();
+        } finally {
+            current[0]--;
+            if (event.shouldCommit()) {
+                event.component = component.type().getTypeName();
+                event.qualifier = component.qualifier() == null ? null : component.qualifier().toString();
+                event.scope = scope == null ? null : scope.annotationType().getName();
+                event.depth = level;
+                event.commit();
+            }
+        }
+    }
+}
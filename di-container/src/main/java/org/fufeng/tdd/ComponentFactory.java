@@ -0,0 +1,16 @@
+package org.fufeng.tdd;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+public interface ComponentFactory<T> extends ComponentProvider<T> {
+
+    T create(IntFunction<Object> dependencies);
+
+    @Override
+    default T get(Context context) {
+        List<ComponentRef> dependencies = getDependencies();
+        return create(index -> context.get(dependencies.get(index)).get());
+    }
+
+}
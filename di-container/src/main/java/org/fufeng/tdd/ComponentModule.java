@@ -0,0 +1,55 @@
+package org.fufeng.tdd;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ComponentModule {
+    private final List<Declaration> declarations;
+
+    public ComponentModule() {
+        this(16);
+    }
+
+    public ComponentModule(int expectedSize) {
+        this.declarations = new ArrayList<>(expectedSize);
+    }
+
+    public <Type> ComponentModule bind(Class<Type> componentType, Type instance, Annotation... qualifiers) {
+        declarations.add(new Declaration(new Component(componentType, null), instance, null, qualifiers));
+        return this;
+    }
+
+    public <Type, Implementation extends Type> ComponentModule bind(Class<Type> componentType, Class<Implementation> implementation,
+                                                                   Annotation... annotations) {
+        declarations.add(new Declaration(new Component(componentType, null), null, implementation, annotations));
+        return this;
+    }
+
+    public <Type> ComponentModule bind(ComponentRef<Type> componentType, Type instance, Annotation... qualifiers) {
+        declarations.add(new Declaration(key(componentType), instance, null, qualifiers));
+        return this;
+    }
+
+    public <Type, Implementation extends Type> ComponentModule bind(ComponentRef<Type> componentType, Class<Implementation> implementation,
+                                                                   Annotation... annotations) {
+        declarations.add(new Declaration(key(componentType), null, implementation, annotations));
+        return this;
+    }
+
+    public int size() {
+        return declarations.size();
+    }
+
+    List<Declaration> declarations() {
+        return declarations;
+    }
+
+    private static Component key(ComponentRef<?> componentType) {
+        if (componentType.isContainer()) throw new IllegalComponentException();
+        return componentType.component();
+    }
+
+    record Declaration(Component component, Object instance, Class<?> implementation, Annotation[] annotations) {
+    }
+}
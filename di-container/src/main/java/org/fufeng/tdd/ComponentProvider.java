@@ -1,6 +1,7 @@
 package org.fufeng.tdd;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.List.of;
 
@@ -11,4 +12,18 @@ public interface ComponentProvider<T> {
         return of();
     }
 
+    default void destroy(T instance) {
+    }
+
+    default void close() {
+    }
+
+    default boolean isAsync(Context context) {
+        return false;
+    }
+
+    default CompletableFuture<T> getAsync(Context context) {
+        return CompletableFuture.completedFuture(get(context));
+    }
+
 }
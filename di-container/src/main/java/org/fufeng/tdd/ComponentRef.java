@@ -3,22 +3,42 @@ package org.fufeng.tdd;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public class ComponentRef<ComponentType> {
 
+    private static final Set<Type> containers = Set.of(jakarta.inject.Provider.class, Lazy.class, CompletableFuture.class,
+            ScopeHandle.class, List.class, Set.class, Map.class);
+    private static final ClassValue<ComponentRef<?>> classes = new ClassValue<>() {
+        @Override
+        protected ComponentRef<?> computeValue(Class<?> type) {
+            return new ComponentRef<>(type, null);
+        }
+    };
+    private static final WeakCache<ComponentRef<?>, ComponentRef<?>> canonical = WeakCache.interner();
+
     private Component component;
     private Type container;
 
     protected void init(Type type, Annotation qualifier) {
-        if (type instanceof ParameterizedType containerType) {
+        if (type instanceof ParameterizedType containerType && isContainer(containerType)) {
+            Type[] arguments = containerType.getActualTypeArguments();
             this.container = containerType.getRawType();
-            this.component = new Component((Class<ComponentType>) containerType.getActualTypeArguments()[0], qualifier);
+            this.component = new Component(arguments[arguments.length - 1], qualifier);
         } else {
-            this.component = new Component((Class<ComponentType>) type, qualifier);
+            this.component = new Component(type, qualifier);
         }
     }
 
+    private static boolean isContainer(ParameterizedType type) {
+        if (!containers.contains(type.getRawType())) return false;
+        return type.getRawType() != Map.class || type.getActualTypeArguments()[0] == String.class;
+    }
+
     protected ComponentRef() {
         Type type = ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
         init(type, null);
@@ -28,24 +48,25 @@ public class ComponentRef<ComponentType> {
         init(type, qualifier);
     }
 
-    private ComponentRef(Class<ComponentType> component) {
-        init(component, null);
-    }
-
     public static ComponentRef of(Type type) {
-        return new ComponentRef(type, null);
+        return canonical(type, null);
     }
 
     public static ComponentRef of(Type type, Annotation qualifier) {
-        return new ComponentRef(type, qualifier);
+        return canonical(type, qualifier);
     }
 
     public static <ComponentType> ComponentRef<ComponentType> of(Class<ComponentType> type) {
-        return new ComponentRef<>(type);
+        return (ComponentRef<ComponentType>) canonical(type, null);
     }
 
     public static <ComponentType> ComponentRef<ComponentType> of(Class<ComponentType> type, Annotation qualifier) {
-        return new ComponentRef<>(type, qualifier);
+        return (ComponentRef<ComponentType>) canonical(type, qualifier);
+    }
+
+    private static ComponentRef<?> canonical(Type type, Annotation qualifier) {
+        if (qualifier == null && type instanceof Class<?> raw) return classes.get(raw);
+        return canonical.intern(new ComponentRef<>(type, qualifier));
     }
 
     public Type getContainer() {
@@ -0,0 +1,105 @@
+package org.fufeng.tdd;
+
+import java.lang.annotation.Annotation;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public final class ContainerMetrics {
+    private final Map<Component, ComponentMetrics> components = new ConcurrentHashMap<>();
+    private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+    private final LongAdder contexts = new LongAdder();
+    private final LongAdder buildNanos = new LongAdder();
+
+    public Optional<ComponentMetrics> get(Class<?> type) {
+        return get(type, null);
+    }
+
+    public Optional<ComponentMetrics> get(Class<?> type, Annotation qualifier) {
+        return Optional.ofNullable(components.get(new Component(type, qualifier)));
+    }
+
+    public Map<Component, ComponentMetrics> getComponents() {
+        return Collections.unmodifiableMap(components);
+    }
+
+    public long getContextsBuilt() {
+        return contexts.sum();
+    }
+
+    public Duration getBuildTime() {
+        return Duration.ofNanos(buildNanos.sum());
+    }
+
+    ComponentMetrics of(Component component) {
+        return components.computeIfAbsent(component, ComponentMetrics::new);
+    }
+
+    void built(long nanos) {
+        contexts.increment();
+        buildNanos.add(nanos);
+    }
+
+    public final class ComponentMetrics {
+        private static final int BUCKETS = 64;
+
+        private final Component component;
+        private final LongAdder instances = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAdder depths = new LongAdder();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        private volatile ReclaimableProvider<?> cache;
+
+        private ComponentMetrics(Component component) {
+            this.component = component;
+        }
+
+        public long getInstances() {
+            return instances.sum();
+        }
+
+        public Duration getTotalTime() {
+            return Duration.ofNanos(nanos.sum());
+        }
+
+        public long getCumulativeDepth() {
+            return depths.sum();
+        }
+
+        public long[] getHistogram() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) counts[i] = histogram.get(i);
+            return counts;
+        }
+
+        public Optional<CacheStatistics> getCacheStatistics() {
+            ReclaimableProvider<?> cache = this.cache;
+            return cache == null ? Optional.empty() : Optional.of(cache.getStatistics());
+        }
+
+        void cache(ReclaimableProvider<?> cache) {
+            this.cache = cache;
+        }
+
+        <T> T record(Annotation scope, Supplier<T> creation) {
+            int[] current = depth.get();
+            int level = current[0]++;
+            long start = System.nanoTime();
+            try {
+                return ComponentCreated.record(component, scope, creation);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                current[0]--;
+                instances.increment();
+                nanos.add(elapsed);
+                depths.add(level);
+                histogram.incrementAndGet(BUCKETS - 1 - Long.numberOfLeadingZeros(Math.max(elapsed, 1)));
+            }
+        }
+    }
+}
@@ -2,8 +2,15 @@ package org.fufeng.tdd;
 
 import java.util.Optional;
 
-public interface Context {
+public interface Context extends AutoCloseable {
 
     <ComponentType> Optional<ComponentType> get(ComponentRef<ComponentType> componentRef);
 
+    <ComponentType> Optional<Resolver<ComponentType>> resolver(ComponentRef<ComponentType> componentRef);
+
+    Context createChild(ContextConfig overrides);
+
+    @Override
+    void close();
+
 }
@@ -0,0 +1,26 @@
+package org.fufeng.tdd;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.fufeng.tdd.ContextBuilt")
+@Label("Context Built")
+@Category("DI Container")
+final class ContextBuilt extends Event {
+    @Label("Bindings")
+    int bindings;
+
+    @Label("Child Context")
+    boolean child;
+
+    @Label("From Snapshot")
+    boolean snapshot;
+
+    @Label("Pruned Bindings")
+    int pruned;
+
+    @Label("Warm Up")
+    String warmUp;
+}
@@ -2,80 +2,511 @@ package org.fufeng.tdd;
 
 import jakarta.inject.Provider;
 import jakarta.inject.Qualifier;
+import jakarta.inject.Singleton;
 
 import java.lang.annotation.Annotation;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class ContextConfig {
+    private static final int VERIFIED = -1;
+    private static final ClassValue<ComponentProvider<?>> providers = new ClassValue<>() {
+        @Override
+        protected ComponentProvider<?> computeValue(Class<?> implementation) {
+            return createProvider(implementation);
+        }
+    };
+
+    private Map<Component, Binding> components = new HashMap<>();
+    private final Map<Component, List<Binding>> elements = new HashMap<>();
+    private final Map<Component, Map<String, Binding>> entries = new HashMap<>();
+    private final Map<Class<?>, Scope> scopes = new HashMap<>();
+    private final Map<Component, Binding> replaced = new HashMap<>();
+    private final Map<Component, List<Binding>> replacedElements = new HashMap<>();
+    private final Map<Component, Map<String, Binding>> replacedEntries = new HashMap<>();
+    private ContainerMetrics metrics;
+    private LiveContext live;
 
-    private final Map<Component, ComponentProvider<?>> components = new HashMap<>();
+    public ContextConfig() {
+        scope(Singleton.class, SingletonProvider::new);
+        scope(Pooled.class, PooledProvider.SCOPE);
+        scope(ThreadConfined.class, ThreadConfinedProvider::new);
+        scope(Reclaimable.class, ReclaimableProvider.SCOPE);
+    }
+
+    public <ScopeType extends Annotation> void scope(Class<ScopeType> scope, Scope provider) {
+        scopes.put(scope, provider);
+    }
+
+    public void instrument(ContainerMetrics metrics) {
+        this.metrics = metrics;
+    }
 
     public <Type> void bind(Class<Type> componentType, Type instance) {
-        components.put(new Component(componentType, null), ctx -> instance);
+        put(new Component(componentType, null), new Binding(ctx -> instance, null));
     }
 
     public <Type> void bind(Class<Type> componentType, Type instance, Annotation... qualifiers) {
         if (Arrays.stream(qualifiers).anyMatch(qualifier -> !qualifier.annotationType().isAnnotationPresent(Qualifier.class))) throw new IllegalComponentException();
         for (Annotation qualifier : qualifiers) {
-            components.put(new Component(componentType, qualifier), ctx -> instance);
+            put(new Component(componentType, qualifier), new Binding(ctx -> instance, null));
+        }
+    }
+
+    public <Type> void bindAsync(Class<Type> componentType, AsyncComponentProvider<? extends Type> provider, Annotation... qualifiers) {
+        if (Arrays.stream(qualifiers).anyMatch(qualifier -> !isQualifier(qualifier))) throw new IllegalComponentException();
+        Binding binding = new Binding(provider, null);
+        if (qualifiers.length == 0) put(new Component(componentType, null), binding);
+        for (Annotation qualifier : qualifiers) {
+            put(new Component(componentType, qualifier), binding);
         }
     }
 
     public <Type, Implementation extends Type> void bind(Class<Type> type, Class<Implementation> implementation) {
-        components.put(new Component(type, null), new InjectionProvider<>(implementation));
+        bind(type, implementation, new Annotation[0]);
     }
 
-    public <Type, Implementation extends Type> void bind(Class<Type> type, Class<Implementation> implementation, Annotation... qualifiers) {
-        if (Arrays.stream(qualifiers).anyMatch(qualifier -> !qualifier.annotationType().isAnnotationPresent(Qualifier.class))) throw new IllegalComponentException();
+    public <Type, Implementation extends Type> void bind(Class<Type> type, Class<Implementation> implementation, Annotation... annotations) {
+        bind(new Component(type, null), implementation, annotations);
+    }
+
+    public <Type> void bind(ComponentRef<Type> componentType, Type instance, Annotation... qualifiers) {
+        if (componentType.isContainer() || Arrays.stream(qualifiers).anyMatch(qualifier -> !isQualifier(qualifier))) throw new IllegalComponentException();
+        Binding binding = new Binding(ctx -> instance, null);
+        if (qualifiers.length == 0) put(componentType.component(), binding);
         for (Annotation qualifier : qualifiers) {
-            components.put(new Component(type, qualifier), new InjectionProvider<>(implementation));
+            put(new Component(componentType.component().type(), qualifier), binding);
         }
     }
 
-    public Context getContext() {
-        components.keySet().forEach(component -> checkDependencies(component, new Stack<>()));
+    public <Type, Implementation extends Type> void bind(ComponentRef<Type> componentType, Class<Implementation> implementation, Annotation... annotations) {
+        if (componentType.isContainer()) throw new IllegalComponentException(implementation);
+        bind(componentType.component(), implementation, annotations);
+    }
 
-        return new Context() {
+    private void bind(Component component, Class<?> implementation, Annotation[] annotations) {
+        if (Arrays.stream(annotations).anyMatch(annotation -> !isQualifier(annotation) && !isScope(annotation))) throw new IllegalComponentException();
 
-            @Override
-            public <ComponentType> Optional<ComponentType> get(ComponentRef<ComponentType> componentRef) {
-                if (componentRef.component().qualifier() != null) {
-                    return Optional.ofNullable(components.get(componentRef.component())).
-                            map(provider -> (ComponentType) provider.get(this));
-                }
-                if (componentRef.isContainer()) {
-                    if (componentRef.getContainer() != Provider.class) return Optional.empty();
+        List<Annotation> qualifiers = Arrays.stream(annotations).filter(ContextConfig::isQualifier).toList();
+        Binding binding = getBinding(implementation, annotations);
+        if (qualifiers.isEmpty()) put(component, binding);
+        for (Annotation qualifier : qualifiers) {
+            put(new Component(component.type(), qualifier), binding);
+        }
+    }
 
-                    return (Optional<ComponentType>) Optional.ofNullable(getProvider(componentRef)).
-                            map(provider -> (Provider<Object>) () -> provider.get(this));
-                }
+    public void bindAll(ComponentModule module) {
+        bindAll(module, null);
+    }
 
-                return Optional.ofNullable(getProvider(componentRef)).
-                        map(provider -> (ComponentType) provider.get(this));
+    public void bindAll(ComponentModule module, Executor executor) {
+        List<ComponentModule.Declaration> declarations = module.declarations();
+        List<Component> keys = new ArrayList<>(declarations.size());
+        List<Binding> bindings = new ArrayList<>(declarations.size());
+        List<Binding> injectables = new ArrayList<>();
+        for (ComponentModule.Declaration declaration : declarations) {
+            Class<?> implementation = declaration.implementation();
+            List<Annotation> qualifiers = new ArrayList<>(declaration.annotations().length);
+            Annotation scope = null;
+            for (Annotation annotation : declaration.annotations()) {
+                if (isQualifier(annotation)) qualifiers.add(annotation);
+                else if (implementation == null || !isScope(annotation)) throw new IllegalComponentException();
+                else if (scope != null) throw new IllegalComponentException(implementation);
+                else scope = annotation;
             }
+            Binding binding;
+            if (implementation == null) {
+                Object instance = declaration.instance();
+                binding = new Binding(ctx -> instance, null);
+            } else {
+                binding = getBinding(implementation, scope != null ? scope : getScope(implementation, new Annotation[0]));
+                injectables.add(binding);
+            }
+            if (qualifiers.isEmpty()) {
+                keys.add(declaration.component());
+                bindings.add(binding);
+            }
+            for (Annotation qualifier : qualifiers) {
+                keys.add(new Component(declaration.component().type(), qualifier));
+                bindings.add(binding);
+            }
+        }
+        if (executor != null) run(injectables, Binding::provider, executor);
+
+        Map<Component, Binding> resized = new HashMap<>((int) ((components.size() + keys.size()) / 0.75f) + 1);
+        resized.putAll(components);
+        components = resized;
+        for (int i = 0; i < keys.size(); i++) put(keys.get(i), bindings.get(i));
+    }
+
+    private static void run(List<Binding> bindings, Consumer<Binding> action, Executor executor) {
+        try {
+            CompletableFuture.allOf(bindings.stream().map(binding -> CompletableFuture.runAsync(() -> action.accept(binding), executor)).
+                    toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    public void unbind(Class<?> type, Annotation... qualifiers) {
+        if (qualifiers.length == 0) put(new Component(type, null), null);
+        for (Annotation qualifier : qualifiers) {
+            put(new Component(type, qualifier), null);
+        }
+    }
+
+    public <Type> void bindIntoSet(Class<Type> type, Type instance) {
+        contributions(new Component(type, null)).add(new Binding(ctx -> instance, null));
+    }
+
+    public <Type, Implementation extends Type> void bindIntoSet(Class<Type> type, Class<Implementation> implementation) {
+        contributions(new Component(type, null)).add(getBinding(implementation, new Annotation[0]));
+    }
+
+    public <Type> void bindIntoMap(Class<Type> type, String key, Type instance) {
+        entries(new Component(type, null)).put(key, new Binding(ctx -> instance, null));
+    }
+
+    public <Type, Implementation extends Type> void bindIntoMap(Class<Type> type, String key, Class<Implementation> implementation) {
+        entries(new Component(type, null)).put(key, getBinding(implementation, new Annotation[0]));
+    }
+
+    private void put(Component component, Binding binding) {
+        Binding previous = binding == null ? components.remove(component) : components.put(component, binding);
+        if (live != null && !replaced.containsKey(component)) replaced.put(component, previous);
+    }
+
+    private List<Binding> contributions(Component component) {
+        if (live != null) replacedElements.computeIfAbsent(component, it -> List.copyOf(elements.getOrDefault(it, List.of())));
+        return elements.computeIfAbsent(component, it -> new ArrayList<>());
+    }
+
+    private Map<String, Binding> entries(Component component) {
+        if (live != null) replacedEntries.computeIfAbsent(component, it -> Map.copyOf(entries.getOrDefault(it, Map.of())));
+        return entries.computeIfAbsent(component, it -> new LinkedHashMap<>());
+    }
+
+    private Binding getBinding(Class<?> implementation, Annotation[] annotations) {
+        return getBinding(implementation, getScope(implementation, annotations));
+    }
 
-            private <ComponentType> ComponentProvider<?> getProvider(ComponentRef<ComponentType> componentRef) {
-                return components.get(componentRef.component());
+    private Binding getBinding(Class<?> implementation, Annotation scope) {
+        if (scope != null && !scopes.containsKey(scope.annotationType())) throw new IllegalComponentException(implementation);
+        return new Binding(implementation, scope);
+    }
+
+    static ComponentProvider<?> getProvider(Class<?> implementation) {
+        return providers.get(implementation);
+    }
+
+    private static ComponentProvider<?> createProvider(Class<?> implementation) {
+        try {
+            return (ComponentProvider<?>) Class.forName(implementation.getName() + "$$Factory", true, implementation.getClassLoader()).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new InjectionProvider<>(implementation);
+        }
+    }
+
+    private static Annotation getScope(Class<?> implementation, Annotation[] annotations) {
+        List<Annotation> scopes = Arrays.stream(annotations).filter(ContextConfig::isScope).toList();
+        if (scopes.isEmpty()) scopes = Arrays.stream(implementation.getAnnotations()).filter(ContextConfig::isScope).toList();
+        if (scopes.size() > 1) throw new IllegalComponentException(implementation);
+        return scopes.stream().findFirst().orElse(null);
+    }
+
+    private static boolean isQualifier(Annotation annotation) {
+        return annotation.annotationType().isAnnotationPresent(Qualifier.class);
+    }
+
+    private static boolean isScope(Annotation annotation) {
+        return annotation.annotationType().isAnnotationPresent(jakarta.inject.Scope.class);
+    }
+
+    public Context getContext() {
+        return getContext(WarmUp.NONE);
+    }
+
+    public Context getContext(WarmUp warmUp) {
+        return compile(null, warmUp);
+    }
+
+    public Context getContext(Path snapshot) {
+        return getContext(snapshot, WarmUp.NONE);
+    }
+
+    public Context getContext(Path snapshot, WarmUp warmUp) {
+        ContextBuilt event = new ContextBuilt();
+        event.begin();
+        long start = System.nanoTime();
+        Snapshot.Graph graph = Snapshot.describe(components, elements, entries);
+        Map<Binding, Integer> levels = Snapshot.load(snapshot, graph).orElse(null);
+        event.snapshot = levels != null;
+        if (levels == null) {
+            levels = checkDependencies(null);
+            Snapshot.write(snapshot, graph, levels);
+        }
+        return compile(null, levels, warmUp, event, start);
+    }
+
+    public Context getContext(ComponentRef<?>... roots) {
+        return getContext(report -> {
+        }, roots);
+    }
+
+    public Context getContext(Consumer<PruningReport> report, ComponentRef<?>... roots) {
+        ContextBuilt event = new ContextBuilt();
+        event.begin();
+        long start = System.nanoTime();
+        Map<Component, Binding> components = new HashMap<>();
+        Map<Component, List<Binding>> elements = new HashMap<>();
+        Map<Component, Map<String, Binding>> entries = new HashMap<>();
+        Map<Binding, Component> reachable = new IdentityHashMap<>();
+        for (ComponentRef<?> root : roots) {
+            List<Binding> targets = getTargets(root);
+            if (targets == null || targets.isEmpty() && root.getContainer() != List.class && root.getContainer() != Set.class &&
+                    root.getContainer() != Map.class) throw new DependencyNotFoundException(null, root.component());
+        }
+        Deque<ComponentRef> pending = new ArrayDeque<>(Arrays.asList(roots));
+        while (!pending.isEmpty()) {
+            ComponentRef<?> componentRef = pending.poll();
+            for (Binding binding : reach(componentRef, components, elements, entries)) {
+                if (reachable.putIfAbsent(binding, componentRef.component()) == null) pending.addAll(binding.provider().getDependencies());
             }
-        };
+        }
+
+        Map<Binding, Integer> levels = checkDependencies(null, reachable::get, reachable.keySet(), binding -> null);
+        List<Component> pruned = new ArrayList<>();
+        int skipped = 0;
+        for (Map.Entry<Binding, Component> binding : getBindings().entrySet()) {
+            if (reachable.containsKey(binding.getKey())) continue;
+            pruned.add(binding.getValue());
+            if (binding.getKey().implementation() != null && !binding.getKey().resolved()) skipped++;
+        }
+        int collections = 2 * (this.elements.size() - elements.size()) + this.entries.size() - entries.size();
+        event.pruned = pruned.size();
+        report.accept(new PruningReport(levels.size(), List.copyOf(pruned), skipped, pruned.size() + collections));
+        CompiledContext context = new CompiledContext(null, components, elements, entries, scopes, levels, metrics);
+        return complete(context, null, levels, WarmUp.NONE, event, start);
+    }
+
+    private List<Binding> reach(ComponentRef<?> componentRef, Map<Component, Binding> components,
+                                Map<Component, List<Binding>> elements, Map<Component, Map<String, Binding>> entries) {
+        Component component = componentRef.component();
+        java.lang.reflect.Type container = componentRef.getContainer();
+        if (container == List.class || container == Set.class) {
+            List<Binding> contributions = this.elements.get(component);
+            if (contributions == null || elements.putIfAbsent(component, contributions) != null) return List.of();
+            return contributions;
+        }
+        if (container == Map.class) {
+            Map<String, Binding> contributions = this.entries.get(component);
+            if (contributions == null || entries.putIfAbsent(component, contributions) != null) return List.of();
+            return List.copyOf(contributions.values());
+        }
+        Binding binding = this.components.get(component);
+        if (binding == null || components.putIfAbsent(component, binding) != null) return List.of();
+        return List.of(binding);
+    }
+
+    public LiveContext getLiveContext() {
+        if (live == null) {
+            ContextBuilt event = new ContextBuilt();
+            event.begin();
+            long start = System.nanoTime();
+            Map<Binding, Integer> levels = checkDependencies(null);
+            live = new LiveContext(this, compile(null, levels, WarmUp.NONE, event, start), levels);
+        }
+        return live;
     }
 
-    // ComponentRef、ContainerRef -> Ref
+    CompiledContext compile(CompiledContext parent, WarmUp warmUp) {
+        ContextBuilt event = new ContextBuilt();
+        event.begin();
+        long start = System.nanoTime();
+        return compile(parent, checkDependencies(parent), warmUp, event, start);
+    }
+
+    CompiledContext recompile(CompiledContext previous, CompiledContext.Changes changes, Map<Binding, Integer> levels) {
+        ContextBuilt event = new ContextBuilt();
+        event.begin();
+        long start = System.nanoTime();
+        CompiledContext context = new CompiledContext(previous, components, elements, entries, scopes, levels, metrics, changes);
+        return complete(context, null, levels, WarmUp.NONE, event, start);
+    }
 
-    private void checkDependencies(Component component, Stack<Component> visiting) {
-        for (ComponentRef componentRef : components.get(component).getDependencies()) {
-            if (!components.containsKey(componentRef.component())) {
-                throw new DependencyNotFoundException(component, componentRef.component());
+    private CompiledContext compile(CompiledContext parent, Map<Binding, Integer> levels, WarmUp warmUp, ContextBuilt event, long start) {
+        CompiledContext context = new CompiledContext(parent, components, elements, entries, scopes, levels, metrics);
+        return complete(context, parent, levels, warmUp, event, start);
+    }
+
+    private CompiledContext complete(CompiledContext context, CompiledContext parent, Map<Binding, Integer> levels, WarmUp warmUp,
+                                     ContextBuilt event, long start) {
+        if (warmUp == WarmUp.SERIAL) getEagerSingletons(levels).forEach(level -> level.forEach(context::get));
+        if (warmUp == WarmUp.PARALLEL) {
+            ExecutorService executor = Executors.newCachedThreadPool();
+            try {
+                for (List<Binding> level : getEagerSingletons(levels)) run(level, context::get, executor);
+            } finally {
+                executor.shutdown();
             }
-            if (componentRef.getComponentType()) {
-                if (visiting.contains(componentRef.component())) {
-                    throw new CyclicDependenciesException(visiting);
+        }
+        if (metrics != null) metrics.built(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.bindings = levels.size();
+            event.child = parent != null;
+            event.warmUp = warmUp.name();
+            event.commit();
+        }
+        return context;
+    }
+
+    private static Collection<List<Binding>> getEagerSingletons(Map<Binding, Integer> levels) {
+        Map<Integer, List<Binding>> singletons = new TreeMap<>();
+        levels.forEach((binding, level) -> {
+            if (binding.scope() != null && binding.scope().annotationType() == Singleton.class)
+                singletons.computeIfAbsent(level, it -> new ArrayList<>()).add(binding);
+        });
+        return singletons.values();
+    }
+
+    private Map<Binding, Integer> checkDependencies(CompiledContext parent) {
+        Map<Binding, Component> bindings = getBindings();
+        return checkDependencies(parent, bindings::get, bindings.keySet(), binding -> null);
+    }
+
+    Map<Binding, Integer> checkDependencies(CompiledContext parent, Function<Binding, Component> labels, Collection<Binding> roots,
+                                            Function<Binding, Integer> verified) {
+        Map<Binding, Integer> visiting = new IdentityHashMap<>(roots.size());
+        Map<Binding, Integer> levels = new IdentityHashMap<>(roots.size());
+        List<Node> path = new ArrayList<>();
+        List<RuntimeException> errors = new ArrayList<>();
+
+        for (Binding root : roots) {
+            if (visiting.containsKey(root)) continue;
+            visiting.put(root, path.size());
+            path.add(new Node(root, getDependencies(root, labels.apply(root), parent, errors)));
+
+            while (!path.isEmpty()) {
+                Node node = path.get(path.size() - 1);
+                if (node.next == node.dependencies.size()) {
+                    path.remove(path.size() - 1);
+                    visiting.put(node.binding, VERIFIED);
+                    levels.put(node.binding, node.level);
+                    if (!path.isEmpty()) path.get(path.size() - 1).reached(node.level);
+                    continue;
+                }
+
+                Binding dependency = node.dependencies.get(node.next++);
+                Integer level = verified.apply(dependency);
+                if (level != null) {
+                    node.reached(level);
+                    continue;
+                }
+                Integer position = visiting.get(dependency);
+                if (position == null) {
+                    visiting.put(dependency, path.size());
+                    path.add(new Node(dependency, getDependencies(dependency, labels.apply(dependency), parent, errors)));
+                } else if (position != VERIFIED) {
+                    errors.add(new CyclicDependenciesException(path.subList(position, path.size()).stream().
+                            map(it -> labels.apply(it.binding)).toList()));
+                } else {
+                    node.reached(levels.get(dependency));
                 }
-                visiting.push(componentRef.component());
-                checkDependencies(componentRef.component(), visiting);
-                visiting.pop();
             }
         }
+
+        if (errors.isEmpty()) return levels;
+        RuntimeException first = errors.get(0);
+        errors.stream().skip(1).forEach(first::addSuppressed);
+        throw first;
     }
 
+    Map<Binding, Component> getBindings() {
+        Map<Binding, Component> bindings = new IdentityHashMap<>();
+        components.forEach((component, binding) -> bindings.putIfAbsent(binding, component));
+        elements.forEach((component, contributions) -> contributions.forEach(binding -> bindings.putIfAbsent(binding, component)));
+        entries.forEach((component, contributions) -> contributions.values().forEach(binding -> bindings.putIfAbsent(binding, component)));
+        return bindings;
+    }
+
+    private List<Binding> getDependencies(Binding binding, Component component, CompiledContext parent, List<RuntimeException> errors) {
+        List<Binding> dependencies = new ArrayList<>();
+        for (ComponentRef<?> componentRef : binding.provider().getDependencies()) {
+            List<Binding> targets = getTargets(componentRef);
+            if (targets == null || targets.isEmpty() && (parent == null || !parent.contains(componentRef))) {
+                errors.add(new DependencyNotFoundException(component, componentRef.component()));
+                continue;
+            }
+            if (!isDeferred(componentRef)) dependencies.addAll(targets);
+        }
+        return dependencies;
+    }
+
+    Map<Component, Binding> components() {
+        return components;
+    }
+
+    Map<Component, List<Binding>> elements() {
+        return elements;
+    }
+
+    Map<Component, Map<String, Binding>> entries() {
+        return entries;
+    }
+
+    Map<Component, Binding> replaced() {
+        return replaced;
+    }
+
+    Map<Component, List<Binding>> replacedElements() {
+        return replacedElements;
+    }
+
+    Map<Component, Map<String, Binding>> replacedEntries() {
+        return replacedEntries;
+    }
+
+    void clearReplaced() {
+        replaced.clear();
+        replacedElements.clear();
+        replacedEntries.clear();
+    }
+
+    private List<Binding> getTargets(ComponentRef<?> componentRef) {
+        java.lang.reflect.Type container = componentRef.getContainer();
+        if (container == null || container == Provider.class || container == Lazy.class || container == CompletableFuture.class ||
+                container == ScopeHandle.class)
+            return Optional.ofNullable(components.get(componentRef.component())).map(List::of).orElse(List.of());
+        if (container == List.class || container == Set.class) return elements.getOrDefault(componentRef.component(), List.of());
+        if (container == Map.class) return List.copyOf(entries.getOrDefault(componentRef.component(), Map.of()).values());
+        return null;
+    }
+
+    private static boolean isDeferred(ComponentRef<?> componentRef) {
+        return componentRef.getContainer() == Provider.class || componentRef.getContainer() == Lazy.class;
+    }
+
+    private static final class Node {
+        private final Binding binding;
+        private final List<Binding> dependencies;
+        private int next;
+        private int level;
+
+        Node(Binding binding, List<Binding> dependencies) {
+            this.binding = binding;
+            this.dependencies = dependencies;
+        }
+
+        void reached(int dependency) {
+            level = Math.max(level, dependency + 1);
+        }
+    }
 }
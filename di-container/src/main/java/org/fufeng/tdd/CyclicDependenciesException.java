@@ -14,6 +14,6 @@ public class CyclicDependenciesException extends RuntimeException {
 
 
     public Set<Class<?>> getComponents() {
-        return classes.stream().map(Component::type).collect(Collectors.toSet());
+        return classes.stream().map(component -> Types.raw(component.type())).collect(Collectors.toSet());
     }
 }
@@ -4,58 +4,106 @@ import jakarta.inject.Inject;
 import jakarta.inject.Qualifier;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.*;
 import java.util.*;
 import java.util.function.BiFunction;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static java.lang.invoke.MethodType.methodType;
 import static java.util.stream.Stream.concat;
 
-public class InjectionProvider<T> implements ComponentProvider<T> {
-    private final Constructor<T> injectConstructor;
-    private final List<Field> injectFields;
-    private final List<Method> injectMethods;
+public class InjectionProvider<T> implements ComponentFactory<T> {
+    private static final Object[] NO_DEPENDENCIES = new Object[0];
+
+    private static final ClassValue<InjectionPoints> cache = new ClassValue<>() {
+        @Override
+        protected InjectionPoints computeValue(Class<?> component) {
+            return InjectionPoints.scan(component);
+        }
+    };
+
+    private final InjectionPoints injectionPoints;
 
     public InjectionProvider(Class<T> component) {
-        if (Modifier.isAbstract(component.getModifiers())) throw new IllegalComponentException(component);
-        if (Modifier.isInterface(component.getModifiers())) throw new IllegalComponentException(component);
-        this.injectConstructor = getInjectConstructor(component);
-        this.injectFields = getFields(component);
-        this.injectMethods = getMethods(component);
+        this.injectionPoints = cache.get(component);
+    }
 
-        if (injectFields.stream().anyMatch(field -> Modifier.isFinal(field.getModifiers())))
-            throw new IllegalComponentException(component);
-        if (injectMethods.stream().anyMatch(method -> Arrays.stream(method.getTypeParameters()).anyMatch(t -> true)))
-            throw new IllegalComponentException(component);
+    InjectionProvider(Constructor<T> constructor, List<Field> fields, List<Method> methods) {
+        this.injectionPoints = new InjectionPoints(constructor, fields, methods);
     }
 
     @Override
-    public T get(Context context) {
+    public T create(IntFunction<Object> dependencies) {
         try {
-            T instance = injectConstructor.newInstance(toDependencies(context, injectConstructor));
-            for (Field field : injectFields) {
-                field.setAccessible(true);
-                field.set(instance, toDependency(context, field));
+            InjectionPoints points = injectionPoints;
+            int index = points.constructorArity;
+            Object instance = points.constructor.invokeExact(toDependencies(dependencies, 0, index));
+            for (MethodHandle fieldSetter : points.fieldSetters) {
+                fieldSetter.invokeExact(instance, dependencies.apply(index++));
             }
-            for (Method method : injectMethods) {
-                method.setAccessible(true);
-                method.invoke(instance, toDependencies(context, method));
+            for (int i = 0; i < points.methodInvokers.length; i++) {
+                points.methodInvokers[i].invokeExact(instance, toDependencies(dependencies, index, points.methodArities[i]));
+                index += points.methodArities[i];
             }
-            return instance;
-        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            return (T) instance;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
             throw new RuntimeException(e);
         }
     }
 
     @Override
     public List<ComponentRef> getDependencies() {
-        return concat(concat(
-                        Arrays.stream(injectConstructor.getParameters()).map(InjectionProvider::toComponentRef),
-                        injectFields.stream().map(InjectionProvider::toComponentRef)
-                ),
-                injectMethods.stream().flatMap(m -> Arrays.stream(m.getParameters()).map(InjectionProvider::toComponentRef))
-        ).toList();
+        return injectionPoints.dependencies;
+    }
+
+    Constructor<?> injectConstructor() {
+        return injectionPoints.injectConstructor;
+    }
+
+    List<Field> injectFields() {
+        return injectionPoints.injectFields;
+    }
+
+    List<Method> injectMethods() {
+        return injectionPoints.injectMethods;
+    }
+
+    private static MethodHandle toHandle(Constructor<?> constructor) {
+        try {
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor).
+                    asSpreader(Object[].class, constructor.getParameterCount()).
+                    asType(methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalComponentException(constructor.getDeclaringClass());
+        }
+    }
+
+    private static MethodHandle toHandle(Field field) {
+        try {
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectSetter(field).
+                    asType(methodType(void.class, Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalComponentException(field.getDeclaringClass());
+        }
+    }
+
+    private static MethodHandle toHandle(Method method) {
+        try {
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method).
+                    asSpreader(Object[].class, method.getParameterCount()).
+                    asType(methodType(void.class, Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalComponentException(method.getDeclaringClass());
+        }
     }
 
     private static ComponentRef toComponentRef(Field field) {
@@ -121,17 +169,13 @@ public class InjectionProvider<T> implements ComponentProvider<T> {
                 noneMatch(ml -> isOverride(m, ml));
     }
 
-    private static Object[] toDependencies(Context context, Executable executable) {
-        return Arrays.stream(executable.getParameters()).
-                map(pt -> toDependency(context, pt.getParameterizedType())).toArray();
-    }
-
-    private static Object toDependency(Context context, Field field) {
-        return toDependency(context, field.getGenericType());
-    }
-
-    private static Object toDependency(Context context, Type type) {
-        return context.get(ComponentRef.of(type)).get();
+    private static Object[] toDependencies(IntFunction<Object> dependencies, int offset, int length) {
+        if (length == 0) return NO_DEPENDENCIES;
+        Object[] values = new Object[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = dependencies.apply(offset + i);
+        }
+        return values;
     }
 
     private static <T> List<T> traverse(Class<?> component, BiFunction<List<T>, Class<?>, List<T>> finder) {
@@ -143,4 +187,47 @@ public class InjectionProvider<T> implements ComponentProvider<T> {
         return members;
     }
 
+    private static final class InjectionPoints {
+        private final Constructor<?> injectConstructor;
+        private final List<Field> injectFields;
+        private final List<Method> injectMethods;
+        private final MethodHandle constructor;
+        private final int constructorArity;
+        private final MethodHandle[] fieldSetters;
+        private final MethodHandle[] methodInvokers;
+        private final int[] methodArities;
+        private final List<ComponentRef> dependencies;
+
+        private static InjectionPoints scan(Class<?> component) {
+            if (Modifier.isAbstract(component.getModifiers())) throw new IllegalComponentException(component);
+            if (Modifier.isInterface(component.getModifiers())) throw new IllegalComponentException(component);
+            Constructor<?> injectConstructor = getInjectConstructor(component);
+            List<Field> injectFields = getFields(component);
+            List<Method> injectMethods = getMethods(component);
+
+            if (injectFields.stream().anyMatch(field -> Modifier.isFinal(field.getModifiers())))
+                throw new IllegalComponentException(component);
+            if (injectMethods.stream().anyMatch(method -> Arrays.stream(method.getTypeParameters()).anyMatch(t -> true)))
+                throw new IllegalComponentException(component);
+            return new InjectionPoints(injectConstructor, injectFields, injectMethods);
+        }
+
+        private InjectionPoints(Constructor<?> injectConstructor, List<Field> injectFields, List<Method> injectMethods) {
+            this.injectConstructor = injectConstructor;
+            this.injectFields = injectFields;
+            this.injectMethods = injectMethods;
+            this.constructor = toHandle(injectConstructor);
+            this.constructorArity = injectConstructor.getParameterCount();
+            this.fieldSetters = injectFields.stream().map(InjectionProvider::toHandle).toArray(MethodHandle[]::new);
+            this.methodInvokers = injectMethods.stream().map(InjectionProvider::toHandle).toArray(MethodHandle[]::new);
+            this.methodArities = injectMethods.stream().mapToInt(Method::getParameterCount).toArray();
+            this.dependencies = concat(concat(
+                            Arrays.stream(injectConstructor.getParameters()).map(InjectionProvider::toComponentRef),
+                            injectFields.stream().map(InjectionProvider::toComponentRef)
+                    ),
+                    injectMethods.stream().flatMap(m -> Arrays.stream(m.getParameters()).map(InjectionProvider::toComponentRef))
+            ).map(ComponentRef.class::cast).toList();
+        }
+    }
+
 }
@@ -0,0 +1,5 @@
+package org.fufeng.tdd;
+
+public interface Lazy<T> {
+    T get();
+}
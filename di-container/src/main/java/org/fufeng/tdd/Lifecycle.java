@@ -0,0 +1,88 @@
+package org.fufeng.tdd;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.lang.invoke.MethodType.methodType;
+
+final class Lifecycle {
+    private static final ClassValue<Lifecycle> lifecycles = new ClassValue<>() {
+        @Override
+        protected Lifecycle computeValue(Class<?> component) {
+            return new Lifecycle(component);
+        }
+    };
+
+    private final MethodHandle[] postConstruct;
+    private final MethodHandle[] preDestroy;
+
+    private Lifecycle(Class<?> component) {
+        this.postConstruct = getCallbacks(component, PostConstruct.class);
+        this.preDestroy = getCallbacks(component, PreDestroy.class);
+    }
+
+    static Lifecycle of(Class<?> component) {
+        if (component == null) return null;
+        Lifecycle lifecycle = lifecycles.get(component);
+        return lifecycle.postConstruct.length == 0 && lifecycle.preDestroy.length == 0 ? null : lifecycle;
+    }
+
+    boolean isDestroyable() {
+        return preDestroy.length > 0;
+    }
+
+    void postConstruct(Object instance) {
+        invoke(postConstruct, instance);
+    }
+
+    void preDestroy(Object instance) {
+        invoke(preDestroy, instance);
+    }
+
+    private static void invoke(MethodHandle[] callbacks, Object instance) {
+        try {
+            for (MethodHandle callback : callbacks) callback.invokeExact(instance);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static MethodHandle[] getCallbacks(Class<?> component, Class<? extends Annotation> annotation) {
+        List<Method> callbacks = new ArrayList<>();
+        List<Method> overriding = new ArrayList<>();
+        for (Class<?> current = component; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers())) {
+                    if (method.isAnnotationPresent(annotation)) throw new IllegalComponentException(component);
+                    continue;
+                }
+                boolean overridden = !Modifier.isPrivate(method.getModifiers()) &&
+                        overriding.stream().anyMatch(it -> it.getName().equals(method.getName()));
+                if (!overridden && method.isAnnotationPresent(annotation)) callbacks.add(method);
+                if (!Modifier.isPrivate(method.getModifiers())) overriding.add(method);
+            }
+        }
+        Collections.reverse(callbacks);
+        return callbacks.stream().map(Lifecycle::toHandle).toArray(MethodHandle[]::new);
+    }
+
+    private static MethodHandle toHandle(Method method) {
+        try {
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method).asType(methodType(void.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new IllegalComponentException(method.getDeclaringClass());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.fufeng.tdd;
+
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+public final class LiveContext implements Context {
+    private final ContextConfig config;
+    private final AtomicReference<CompiledContext> current;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Key, Set<Binding>> dependents = new HashMap<>();
+    private final Map<Binding, Set<Key>> served = new IdentityHashMap<>();
+    private final Map<Binding, Integer> levels;
+
+    LiveContext(ContextConfig config, CompiledContext context, Map<Binding, Integer> levels) {
+        this.config = config;
+        this.current = new AtomicReference<>(context);
+        this.levels = levels;
+        config.components().forEach((component, binding) -> served(served, binding).add(new Key(null, component)));
+        config.elements().forEach((component, bindings) -> bindings.forEach(binding -> served(served, binding).add(new Key(List.class, component))));
+        config.entries().forEach((component, bindings) -> bindings.values().forEach(binding -> served(served, binding).add(new Key(Map.class, component))));
+        served.keySet().forEach(this::link);
+    }
+
+    @Override
+    public <ComponentType> Optional<ComponentType> get(ComponentRef<ComponentType> componentRef) {
+        return current.get().get(componentRef);
+    }
+
+    @Override
+    public <ComponentType> Optional<Resolver<ComponentType>> resolver(ComponentRef<ComponentType> componentRef) {
+        if (current.get().resolver(componentRef).isEmpty()) return Optional.empty();
+        return Optional.of(() -> current.get().resolver(componentRef).
+                orElseThrow(() -> new DependencyNotFoundException(null, componentRef.component())).get());
+    }
+
+    @Override
+    public Context createChild(ContextConfig overrides) {
+        return current.get().createChild(overrides);
+    }
+
+    CompiledContext version() {
+        return current.get();
+    }
+
+    public void refresh() {
+        lock.lock();
+        try {
+            Map<Binding, Set<Key>> touched = new IdentityHashMap<>();
+            Set<Key> dirty = new HashSet<>();
+            config.replaced().forEach((component, previous) -> {
+                Binding binding = config.components().get(component);
+                touch(touched, dirty, new Key(null, component), previous == null ? List.of() : List.of(previous),
+                        binding == null ? List.of() : List.of(binding));
+            });
+            config.replacedElements().forEach((component, previous) ->
+                    touch(touched, dirty, new Key(List.class, component), previous, config.elements().getOrDefault(component, List.of())));
+            config.replacedEntries().forEach((component, previous) ->
+                    touch(touched, dirty, new Key(Map.class, component), previous.values(), config.entries().getOrDefault(component, Map.of()).values()));
+            if (dirty.isEmpty()) return;
+
+            Set<Binding> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+            Set<Binding> affected = Collections.newSetFromMap(new IdentityHashMap<>());
+            touched.forEach((binding, keys) -> (keys.isEmpty() ? removed : affected).add(binding));
+            Deque<Key> pending = new ArrayDeque<>(dirty);
+            while (!pending.isEmpty()) {
+                for (Binding dependent : dependents.getOrDefault(pending.poll(), Set.of())) {
+                    if (removed.contains(dependent) || !affected.add(dependent)) continue;
+                    for (Key key : touched.getOrDefault(dependent, served.get(dependent))) {
+                        if (dirty.add(key)) pending.add(key);
+                    }
+                }
+            }
+
+            Function<Binding, Component> labels = binding -> touched.getOrDefault(binding, served.get(binding)).iterator().next().component();
+            Map<Binding, Integer> updated = config.checkDependencies(null, labels, affected,
+                    binding -> affected.contains(binding) ? null : levels.get(binding));
+            Map<Type, Set<Component>> changed = new HashMap<>();
+            dirty.forEach(key -> changed.computeIfAbsent(key.container(), it -> new HashSet<>()).add(key.component()));
+            CompiledContext context = config.recompile(current.get(), new CompiledContext.Changes(affected, removed,
+                    changed.getOrDefault(null, Set.of()), changed.getOrDefault(List.class, Set.of()), changed.getOrDefault(Map.class, Set.of()),
+                    labels), updated);
+
+            removed.forEach(this::unlink);
+            affected.stream().filter(binding -> !levels.containsKey(binding)).forEach(this::link);
+            touched.forEach((binding, keys) -> {
+                if (keys.isEmpty()) served.remove(binding);
+                else served.put(binding, keys);
+            });
+            removed.forEach(levels::remove);
+            levels.putAll(updated);
+            config.clearReplaced();
+            current.set(context);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        current.get().close();
+    }
+
+    private void touch(Map<Binding, Set<Key>> touched, Set<Key> dirty, Key key, Collection<Binding> previous, Collection<Binding> current) {
+        dirty.add(key);
+        previous.forEach(binding -> touched.computeIfAbsent(binding, this::copyServed).remove(key));
+        current.forEach(binding -> touched.computeIfAbsent(binding, this::copyServed).add(key));
+    }
+
+    private Set<Key> copyServed(Binding binding) {
+        return new HashSet<>(served.getOrDefault(binding, Set.of()));
+    }
+
+    private void link(Binding binding) {
+        for (ComponentRef<?> dependency : binding.provider().getDependencies()) {
+            dependents.computeIfAbsent(Key.of(dependency), it -> Collections.newSetFromMap(new IdentityHashMap<>())).add(binding);
+        }
+    }
+
+    private void unlink(Binding binding) {
+        for (ComponentRef<?> dependency : binding.provider().getDependencies()) {
+            Set<Binding> bindings = dependents.get(Key.of(dependency));
+            if (bindings != null) bindings.remove(binding);
+        }
+    }
+
+    private static Set<Key> served(Map<Binding, Set<Key>> served, Binding binding) {
+        return served.computeIfAbsent(binding, it -> new HashSet<>());
+    }
+
+    private record Key(Type container, Component component) {
+        static Key of(ComponentRef<?> componentRef) {
+            Type container = componentRef.getContainer();
+            if (container == List.class || container == Set.class) return new Key(List.class, componentRef.component());
+            if (container == Map.class) return new Key(Map.class, componentRef.component());
+            return new Key(null, componentRef.component());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.fufeng.tdd;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+class PooledProvider<T> implements ComponentProvider<T>, Releasable {
+    static final Scope SCOPE = new Scope() {
+        @Override
+        public ComponentProvider<?> create(ComponentProvider<?> provider) {
+            return new PooledProvider<>(provider, Runtime.getRuntime().availableProcessors());
+        }
+
+        @Override
+        public ComponentProvider<?> create(ComponentProvider<?> provider, Annotation scope) {
+            return new PooledProvider<>(provider, ((Pooled) scope).size());
+        }
+    };
+
+    private final ComponentProvider<T> provider;
+    private final AtomicReferenceArray<Object> idle;
+    private volatile boolean closed;
+
+    public PooledProvider(ComponentProvider<T> provider, int size) {
+        if (size < 1) throw new IllegalArgumentException("pool size must be positive: " + size);
+        this.provider = provider;
+        this.idle = new AtomicReferenceArray<>(size);
+    }
+
+    @Override
+    public T get(Context context) {
+        int size = idle.length();
+        int start = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            Object instance = idle.get(index);
+            if (instance != null && idle.compareAndSet(index, instance, null)) return (T) instance;
+        }
+        return provider.get(context);
+    }
+
+    @Override
+    public void release(Object instance) {
+        int size = idle.length();
+        int start = ThreadLocalRandom.current().nextInt(size);
+        for (int i = 0; i < size && !closed; i++) {
+            int index = (start + i) % size;
+            if (idle.get(index) != null || !idle.compareAndSet(index, null, instance)) continue;
+            if (closed && idle.compareAndSet(index, instance, null)) break;
+            return;
+        }
+        provider.destroy((T) instance);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (int i = 0; i < idle.length(); i++) {
+            Object instance = idle.getAndSet(i, null);
+            if (instance != null) provider.destroy((T) instance);
+        }
+    }
+
+    @Override
+    public List<ComponentRef> getDependencies() {
+        return provider.getDependencies();
+    }
+}
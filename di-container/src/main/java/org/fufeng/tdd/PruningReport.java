@@ -0,0 +1,6 @@
+package org.fufeng.tdd;
+
+import java.util.List;
+
+public record PruningReport(int retained, List<Component> pruned, int skippedIntrospections, int prunedSlots) {
+}
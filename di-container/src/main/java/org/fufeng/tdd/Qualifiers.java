@@ -0,0 +1,25 @@
+package org.fufeng.tdd;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Proxy;
+
+final class Qualifiers {
+    private static final WeakCache<Annotation, Annotation> canonical = WeakCache.interner();
+    private static final WeakCache<Annotation, Annotation> proxies = WeakCache.identity();
+
+    private Qualifiers() {
+    }
+
+    static Annotation canonical(Annotation qualifier) {
+        if (qualifier == null) return null;
+        if (!Proxy.isProxyClass(qualifier.getClass())) return canonical.intern(qualifier);
+
+        Annotation annotation = proxies.get(qualifier);
+        if (annotation != null) return annotation;
+        return proxies.putIfAbsent(qualifier, canonical.intern(qualifier));
+    }
+
+    static int hash(Annotation canonical) {
+        return System.identityHashCode(canonical);
+    }
+}
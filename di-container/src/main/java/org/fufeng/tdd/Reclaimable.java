@@ -0,0 +1,20 @@
+package org.fufeng.tdd;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+@Documented
+@Retention(RUNTIME)
+@Target(TYPE)
+@jakarta.inject.Scope
+public @interface Reclaimable {
+    Strength value() default Strength.SOFT;
+
+    enum Strength {
+        SOFT, WEAK
+    }
+}
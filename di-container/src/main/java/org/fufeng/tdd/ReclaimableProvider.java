@@ -0,0 +1,81 @@
+package org.fufeng.tdd;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+class ReclaimableProvider<T> implements ComponentProvider<T> {
+    static final Scope SCOPE = new Scope() {
+        @Override
+        public ComponentProvider<?> create(ComponentProvider<?> provider) {
+            return new ReclaimableProvider<>(provider, Reclaimable.Strength.SOFT);
+        }
+
+        @Override
+        public ComponentProvider<?> create(ComponentProvider<?> provider, Annotation scope) {
+            return new ReclaimableProvider<>(provider, ((Reclaimable) scope).value());
+        }
+    };
+
+    private final ComponentProvider<T> provider;
+    private final Reclaimable.Strength strength;
+    private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile Reference<T> reference;
+
+    public ReclaimableProvider(ComponentProvider<T> provider, Reclaimable.Strength strength) {
+        this.provider = provider;
+        this.strength = strength;
+    }
+
+    @Override
+    public T get(Context context) {
+        T instance = cached();
+        if (instance != null) {
+            hits.increment();
+            return instance;
+        }
+        lock.lock();
+        try {
+            instance = cached();
+            if (instance != null) {
+                hits.increment();
+                return instance;
+            }
+            misses.increment();
+            drain();
+            instance = provider.get(context);
+            reference = strength == Reclaimable.Strength.WEAK ? new WeakReference<>(instance, queue) : new SoftReference<>(instance, queue);
+            return instance;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    CacheStatistics getStatistics() {
+        drain();
+        return new CacheStatistics(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    @Override
+    public List<ComponentRef> getDependencies() {
+        return provider.getDependencies();
+    }
+
+    private T cached() {
+        Reference<T> reference = this.reference;
+        return reference == null ? null : reference.get();
+    }
+
+    private void drain() {
+        while (queue.poll() != null) evictions.increment();
+    }
+}
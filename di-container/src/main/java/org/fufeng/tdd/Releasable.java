@@ -0,0 +1,5 @@
+package org.fufeng.tdd;
+
+interface Releasable {
+    void release(Object instance);
+}
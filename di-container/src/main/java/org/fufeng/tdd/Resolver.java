@@ -0,0 +1,11 @@
+package org.fufeng.tdd;
+
+import jakarta.inject.Provider;
+
+@FunctionalInterface
+public interface Resolver<T> extends Provider<T> {
+
+    @Override
+    T get();
+
+}
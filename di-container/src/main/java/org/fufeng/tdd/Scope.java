@@ -0,0 +1,14 @@
+package org.fufeng.tdd;
+
+import java.lang.annotation.Annotation;
+
+@FunctionalInterface
+public interface Scope {
+
+    ComponentProvider<?> create(ComponentProvider<?> provider);
+
+    default ComponentProvider<?> create(ComponentProvider<?> provider, Annotation scope) {
+        return create(provider);
+    }
+
+}
@@ -0,0 +1,8 @@
+package org.fufeng.tdd;
+
+public interface ScopeHandle<T> extends AutoCloseable {
+    T get();
+
+    @Override
+    void close();
+}
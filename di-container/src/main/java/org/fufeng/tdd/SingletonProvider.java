@@ -0,0 +1,54 @@
+package org.fufeng.tdd;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+class SingletonProvider<T> implements ComponentProvider<T> {
+    private final ComponentProvider<T> provider;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile T singleton;
+    private CompletableFuture<T> future;
+
+    public SingletonProvider(ComponentProvider<T> provider) {
+        this.provider = provider;
+    }
+
+    @Override
+    public T get(Context context) {
+        T instance = singleton;
+        if (instance != null) return instance;
+        lock.lock();
+        try {
+            if (singleton == null) singleton = future == null || future.isCompletedExceptionally() ? provider.get(context) : future.join();
+            return singleton;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<T> getAsync(Context context) {
+        T instance = singleton;
+        if (instance != null) return CompletableFuture.completedFuture(instance);
+        if (!provider.isAsync(context)) return ComponentProvider.super.getAsync(context);
+        lock.lock();
+        try {
+            if (singleton != null) return CompletableFuture.completedFuture(singleton);
+            if (future == null || future.isCompletedExceptionally()) future = provider.getAsync(context).thenApply(created -> singleton = created);
+            return future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isAsync(Context context) {
+        return provider.isAsync(context);
+    }
+
+    @Override
+    public List<ComponentRef> getDependencies() {
+        return provider.getDependencies();
+    }
+}
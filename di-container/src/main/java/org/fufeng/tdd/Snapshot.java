@@ -0,0 +1,229 @@
+package org.fufeng.tdd;
+
+import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+final class Snapshot {
+    private static final int MAGIC = 0x44494753;
+    private static final int VERSION = 2;
+    private static final System.Logger logger = System.getLogger(Snapshot.class.getName());
+
+    private Snapshot() {
+    }
+
+    record Graph(List<Binding> bindings, byte[] fingerprint) {
+    }
+
+    static Graph describe(Map<Component, Binding> components, Map<Component, List<Binding>> elements,
+                          Map<Component, Map<String, Binding>> entries) {
+        TreeMap<String, Binding> keys = new TreeMap<>();
+        components.forEach((component, binding) -> keys.put("component " + describe(component), binding));
+        elements.forEach((component, contributions) -> {
+            for (int i = 0; i < contributions.size(); i++) keys.put("element " + describe(component) + " " + i, contributions.get(i));
+        });
+        entries.forEach((component, contributions) -> contributions.forEach((key, binding) -> keys.put("entry " + describe(component) + " " + key, binding)));
+
+        Map<Binding, Integer> indexes = new IdentityHashMap<>(keys.size());
+        Map<Class<?>, String> stamps = new HashMap<>();
+        Map<Path, String> sources = new HashMap<>();
+        List<Binding> bindings = new ArrayList<>(keys.size());
+        MessageDigest fingerprint = digest();
+        for (Map.Entry<String, Binding> key : keys.entrySet()) {
+            Integer index = indexes.get(key.getValue());
+            if (index == null) {
+                String binding = describe(key.getValue(), stamps, sources);
+                if (binding == null) return new Graph(bindings, null);
+                index = bindings.size();
+                indexes.put(key.getValue(), index);
+                bindings.add(key.getValue());
+                update(fingerprint, "binding " + index + " " + binding);
+            }
+            update(fingerprint, key.getKey() + " -> " + index);
+        }
+        return new Graph(bindings, fingerprint.digest());
+    }
+
+    static Optional<Map<Binding, Integer>> load(Path path, Graph graph) {
+        if (graph.fingerprint() == null || !Files.isRegularFile(path)) return Optional.empty();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return Optional.empty();
+            if (!Arrays.equals(in.readNBytes(graph.fingerprint().length), graph.fingerprint()) || in.readInt() != graph.bindings().size())
+                return Optional.empty();
+
+            Map<Binding, Integer> levels = new IdentityHashMap<>(graph.bindings().size());
+            Map<Binding, ComponentProvider<?>> providers = new IdentityHashMap<>();
+            List<ComponentProvider<?>> plans = new ArrayList<>();
+            for (Binding binding : graph.bindings()) {
+                levels.put(binding, in.readInt());
+                int plan = in.readInt();
+                if (plan < 0) continue;
+                if (plan == plans.size()) plans.add(readProvider(in, binding.implementation().getClassLoader()));
+                providers.put(binding, plans.get(plan));
+            }
+            providers.forEach(Binding::restore);
+            return Optional.of(levels);
+        } catch (IOException | ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    static void write(Path path, Graph graph, Map<Binding, Integer> levels) {
+        if (graph.fingerprint() == null) return;
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.write(graph.fingerprint());
+                out.writeInt(graph.bindings().size());
+                Map<Class<?>, Integer> plans = new HashMap<>();
+                for (Binding binding : graph.bindings()) {
+                    out.writeInt(levels.get(binding));
+                    if (binding.implementation() == null || !(binding.provider() instanceof InjectionProvider<?> provider)) {
+                        out.writeInt(-1);
+                        continue;
+                    }
+                    Integer plan = plans.get(binding.implementation());
+                    if (plan != null) {
+                        out.writeInt(plan);
+                        continue;
+                    }
+                    out.writeInt(plans.size());
+                    plans.put(binding.implementation(), plans.size());
+                    writeProvider(out, provider);
+                }
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            logger.log(System.Logger.Level.WARNING, "failed to write context snapshot " + path, e);
+        }
+    }
+
+    private static String describe(Component component) {
+        return component.type().getTypeName() + (component.qualifier() == null ? "" : " " + component.qualifier());
+    }
+
+    private static String describe(Binding binding, Map<Class<?>, String> stamps, Map<Path, String> sources) {
+        Class<?> implementation = binding.implementation();
+        if (implementation == null && binding.provider().getDependencies().isEmpty()) return "instance";
+        if (implementation == null) {
+            if (binding.provider().getClass().isHidden()) return null;
+            StringBuilder description = new StringBuilder(binding.provider().getClass().getName());
+            for (ComponentRef<?> dependency : binding.provider().getDependencies()) {
+                description.append(' ').append(dependency.getContainer() == null ? "" : dependency.getContainer().getTypeName() + ":").
+                        append(describe(dependency.component()));
+            }
+            return description.toString();
+        }
+        String stamp = stamps.computeIfAbsent(implementation, it -> hierarchy(it, sources));
+        if (stamp.isEmpty()) return null;
+        return binding.scope() == null ? stamp : stamp + " @" + binding.scope().annotationType().getName();
+    }
+
+    private static String hierarchy(Class<?> implementation, Map<Path, String> sources) {
+        StringBuilder description = new StringBuilder(implementation.getName());
+        for (Class<?> type = implementation; type != null && type != Object.class; type = type.getSuperclass()) {
+            String stamp = stamp(type, sources);
+            if (stamp.isEmpty()) return "";
+            description.append(' ').append(stamp);
+        }
+        return description.toString();
+    }
+
+    private static String stamp(Class<?> type, Map<Path, String> sources) {
+        CodeSource source = type.getProtectionDomain().getCodeSource();
+        if (source == null || source.getLocation() == null) return Runtime.version().toString();
+        try {
+            Path location = Path.of(source.getLocation().toURI());
+            if (!Files.isDirectory(location)) return sources.computeIfAbsent(location, Snapshot::stamp);
+            String name = type.getName();
+            return stamp(location.resolve(name.replace('.', File.separatorChar) + ".class"));
+        } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException e) {
+            return "";
+        }
+    }
+
+    private static String stamp(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return attributes.size() + ":" + attributes.lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static void writeProvider(DataOutputStream out, InjectionProvider<?> provider) throws IOException {
+        Constructor<?> constructor = provider.injectConstructor();
+        out.writeUTF(constructor.getDeclaringClass().getName());
+        writeTypes(out, constructor.getParameterTypes());
+        out.writeInt(provider.injectFields().size());
+        for (Field field : provider.injectFields()) {
+            out.writeUTF(field.getDeclaringClass().getName());
+            out.writeUTF(field.getName());
+        }
+        out.writeInt(provider.injectMethods().size());
+        for (Method method : provider.injectMethods()) {
+            out.writeUTF(method.getDeclaringClass().getName());
+            out.writeUTF(method.getName());
+            writeTypes(out, method.getParameterTypes());
+        }
+    }
+
+    private static InjectionProvider<?> readProvider(DataInputStream in, ClassLoader loader) throws IOException, ReflectiveOperationException {
+        Constructor<?> constructor = Class.forName(in.readUTF(), false, loader).getDeclaredConstructor(readTypes(in, loader));
+        List<Field> fields = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            fields.add(Class.forName(in.readUTF(), false, loader).getDeclaredField(in.readUTF()));
+        }
+        List<Method> methods = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            Class<?> declaring = Class.forName(in.readUTF(), false, loader);
+            methods.add(declaring.getDeclaredMethod(in.readUTF(), readTypes(in, loader)));
+        }
+        return new InjectionProvider<>(constructor, fields, methods);
+    }
+
+    private static void writeTypes(DataOutputStream out, Class<?>[] types) throws IOException {
+        out.writeInt(types.length);
+        for (Class<?> type : types) out.writeUTF(type.getName());
+    }
+
+    private static Class<?>[] readTypes(DataInputStream in, ClassLoader loader) throws IOException, ClassNotFoundException {
+        Class<?>[] types = new Class<?>[in.readInt()];
+        for (int i = 0; i < types.length; i++) types[i] = Class.forName(in.readUTF(), false, loader);
+        return types;
+    }
+}
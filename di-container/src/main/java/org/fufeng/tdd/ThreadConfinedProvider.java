@@ -0,0 +1,108 @@
+package org.fufeng.tdd;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static java.lang.invoke.MethodType.methodType;
+
+class ThreadConfinedProvider<T> implements ComponentProvider<T>, Releasable {
+    private static final MethodHandle isVirtual = findIsVirtual();
+
+    private final ComponentProvider<T> provider;
+    private final Predicate<Thread> virtual;
+    private final ThreadLocal<T> instances = new ThreadLocal<>();
+    private final Map<Long, Confined<T>> confined = new ConcurrentHashMap<>();
+    private final PooledProvider<T> pool;
+    private volatile int threshold = 1;
+
+    public ThreadConfinedProvider(ComponentProvider<T> provider) {
+        this(provider, ThreadConfinedProvider::isVirtual);
+    }
+
+    ThreadConfinedProvider(ComponentProvider<T> provider, Predicate<Thread> virtual) {
+        this.provider = provider;
+        this.virtual = virtual;
+        this.pool = new PooledProvider<>(provider, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public T get(Context context) {
+        Thread thread = Thread.currentThread();
+        if (virtual.test(thread)) return getConfined(thread, context);
+        T instance = instances.get();
+        if (instance == null) {
+            instance = confine(thread, provider.get(context));
+            instances.set(instance);
+        }
+        return instance;
+    }
+
+    @Override
+    public void release(Object instance) {
+        Thread thread = Thread.currentThread();
+        if (!virtual.test(thread)) return;
+        Confined<T> current = confined.get(thread.getId());
+        if (current != null && current.instance() == instance) confined.remove(thread.getId(), current);
+        pool.release(instance);
+    }
+
+    @Override
+    public void close() {
+        for (Map.Entry<Long, Confined<T>> entry : confined.entrySet()) {
+            if (confined.remove(entry.getKey(), entry.getValue())) provider.destroy(entry.getValue().instance());
+        }
+        pool.close();
+    }
+
+    @Override
+    public List<ComponentRef> getDependencies() {
+        return provider.getDependencies();
+    }
+
+    private T getConfined(Thread thread, Context context) {
+        Confined<T> current = confined.get(thread.getId());
+        if (current != null) return current.instance();
+        if (confined.size() >= threshold) reclaim();
+        return confine(thread, pool.get(context));
+    }
+
+    private T confine(Thread thread, T instance) {
+        if (confined.size() >= threshold) reclaim();
+        confined.put(thread.getId(), new Confined<>(new WeakReference<>(thread), instance));
+        return instance;
+    }
+
+    private void reclaim() {
+        for (Map.Entry<Long, Confined<T>> entry : confined.entrySet()) {
+            Thread owner = entry.getValue().thread().get();
+            if (owner != null && owner.isAlive()) continue;
+            if (confined.remove(entry.getKey(), entry.getValue())) pool.release(entry.getValue().instance());
+        }
+        threshold = Math.max(1, 2 * confined.size());
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        if (isVirtual == null) return false;
+        try {
+            return (boolean) isVirtual.invokeExact(thread);
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    private static MethodHandle findIsVirtual() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", methodType(boolean.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private record Confined<T>(WeakReference<Thread> thread, T instance) {
+    }
+}
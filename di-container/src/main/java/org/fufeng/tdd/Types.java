@@ -0,0 +1,172 @@
+package org.fufeng.tdd;
+
+import java.lang.reflect.*;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+final class Types {
+    private static final Type[] NO_TYPES = new Type[0];
+
+    private static final WeakCache<Type, Type> canonical = WeakCache.interner();
+
+    private Types() {
+    }
+
+    static Type canonical(Type type) {
+        if (type instanceof Class<?> || type instanceof TypeVariable<?> || type instanceof Canonical) return type;
+        Type existing = canonical.get(type);
+        if (existing != null) return existing;
+        Type created;
+        if (type instanceof ParameterizedType parameterized) {
+            created = new CanonicalParameterizedType((Class<?>) parameterized.getRawType(),
+                    parameterized.getOwnerType() == null ? null : canonical(parameterized.getOwnerType()),
+                    canonical(parameterized.getActualTypeArguments()));
+        } else if (type instanceof WildcardType wildcard) {
+            created = new CanonicalWildcardType(canonical(wildcard.getUpperBounds()), canonical(wildcard.getLowerBounds()));
+        } else if (type instanceof GenericArrayType array) {
+            created = new CanonicalGenericArrayType(canonical(array.getGenericComponentType()));
+        } else {
+            return type;
+        }
+        return canonical.putIfAbsent(created, created);
+    }
+
+    static Class<?> raw(Type type) {
+        if (type instanceof Class<?> raw) return raw;
+        if (type instanceof ParameterizedType parameterized) return (Class<?>) parameterized.getRawType();
+        if (type instanceof GenericArrayType array) return Array.newInstance(raw(array.getGenericComponentType()), 0).getClass();
+        if (type instanceof WildcardType wildcard) return raw(wildcard.getUpperBounds()[0]);
+        if (type instanceof TypeVariable<?> variable) return raw(variable.getBounds()[0]);
+        return Object.class;
+    }
+
+    private static Type[] canonical(Type[] types) {
+        if (types.length == 0) return NO_TYPES;
+        Type[] canonical = new Type[types.length];
+        for (int i = 0; i < types.length; i++) canonical[i] = canonical(types[i]);
+        return canonical;
+    }
+
+    private interface Canonical {
+    }
+
+    private static final class CanonicalParameterizedType implements ParameterizedType, Canonical {
+        private final Class<?> raw;
+        private final Type owner;
+        private final Type[] arguments;
+        private final int hash;
+
+        CanonicalParameterizedType(Class<?> raw, Type owner, Type[] arguments) {
+            this.raw = raw;
+            this.owner = owner;
+            this.arguments = arguments;
+            this.hash = Arrays.hashCode(arguments) ^ Objects.hashCode(owner) ^ raw.hashCode();
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return arguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return raw;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return owner;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ParameterizedType that)) return false;
+            return raw == that.getRawType() && Objects.equals(owner, that.getOwnerType()) &&
+                    Arrays.equals(arguments, that.getActualTypeArguments());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            StringJoiner arguments = new StringJoiner(", ", "<", ">");
+            for (Type argument : this.arguments) arguments.add(argument.getTypeName());
+            return raw.getTypeName() + arguments;
+        }
+    }
+
+    private static final class CanonicalWildcardType implements WildcardType, Canonical {
+        private final Type[] upper;
+        private final Type[] lower;
+        private final int hash;
+
+        CanonicalWildcardType(Type[] upper, Type[] lower) {
+            this.upper = upper;
+            this.lower = lower;
+            this.hash = Arrays.hashCode(upper) ^ Arrays.hashCode(lower);
+        }
+
+        @Override
+        public Type[] getUpperBounds() {
+            return upper.clone();
+        }
+
+        @Override
+        public Type[] getLowerBounds() {
+            return lower.clone();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof WildcardType that)) return false;
+            return Arrays.equals(upper, that.getUpperBounds()) && Arrays.equals(lower, that.getLowerBounds());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            if (lower.length > 0) return "? super " + lower[0].getTypeName();
+            if (upper.length == 0 || upper[0] == Object.class) return "?";
+            return "? extends " + upper[0].getTypeName();
+        }
+    }
+
+    private static final class CanonicalGenericArrayType implements GenericArrayType, Canonical {
+        private final Type component;
+
+        CanonicalGenericArrayType(Type component) {
+            this.component = component;
+        }
+
+        @Override
+        public Type getGenericComponentType() {
+            return component;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            return o instanceof GenericArrayType that && component.equals(that.getGenericComponentType());
+        }
+
+        @Override
+        public int hashCode() {
+            return component.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return component.getTypeName() + "[]";
+        }
+    }
+}
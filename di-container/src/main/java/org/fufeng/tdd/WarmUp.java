@@ -0,0 +1,5 @@
+package org.fufeng.tdd;
+
+public enum WarmUp {
+    NONE, SERIAL, PARALLEL
+}
@@ -0,0 +1,78 @@
+package org.fufeng.tdd;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class WeakCache<K, V> {
+    private final Map<Key<K>, Reference<V>> table = new ConcurrentHashMap<>();
+    private final ReferenceQueue<K> queue = new ReferenceQueue<>();
+    private final boolean identity;
+
+    private WeakCache(boolean identity) {
+        this.identity = identity;
+    }
+
+    static <T> WeakCache<T, T> interner() {
+        return new WeakCache<>(false);
+    }
+
+    static <K, V> WeakCache<K, V> identity() {
+        return new WeakCache<>(true);
+    }
+
+    V get(K key) {
+        expunge();
+        Reference<V> value = table.get(new Key<>(key, null, identity));
+        return value == null ? null : value.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    V putIfAbsent(K key, V value) {
+        Key<K> entry = new Key<>(key, queue, identity);
+        Reference<V> reference = value == key ? (Reference<V>) entry : new WeakReference<>(value);
+        while (true) {
+            Reference<V> existing = table.putIfAbsent(entry, reference);
+            if (existing == null) return value;
+            V current = existing.get();
+            if (current != null) return current;
+            if (table.replace(entry, existing, reference)) return value;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    V intern(K value) {
+        V existing = get(value);
+        return existing != null ? existing : putIfAbsent(value, (V) value);
+    }
+
+    private void expunge() {
+        for (Reference<? extends K> cleared; (cleared = queue.poll()) != null; ) table.remove(cleared);
+    }
+
+    private static final class Key<K> extends WeakReference<K> {
+        private final int hash;
+        private final boolean identity;
+
+        Key(K referent, ReferenceQueue<K> queue, boolean identity) {
+            super(referent, queue);
+            this.hash = identity ? System.identityHashCode(referent) : referent.hashCode();
+            this.identity = identity;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key<?> that) || hash != that.hash) return false;
+            Object referent = get();
+            return referent != null && (identity ? referent == that.get() : referent.equals(that.get()));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
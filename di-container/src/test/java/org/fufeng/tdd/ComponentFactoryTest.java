@@ -0,0 +1,215 @@
+package org.fufeng.tdd;
+
+import org.fufeng.tdd.processor.ComponentFactoryProcessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ComponentFactoryTest {
+    private static final Map<String, String> COMPONENTS = Map.of(
+            "p.Dependency", """
+                    package p;
+                    public interface Dependency {
+                    }
+                    """,
+            "p.FieldAndMethodInjection", """
+                    package p;
+                    import jakarta.inject.Inject;
+                    public class FieldAndMethodInjection {
+                        @Inject public Dependency field;
+                        public Dependency method;
+                        @Inject void install(Dependency dependency) {
+                            this.method = dependency;
+                        }
+                    }
+                    """,
+            "p.SuperClassWithInjectMethod", """
+                    package p;
+                    import jakarta.inject.Inject;
+                    public class SuperClassWithInjectMethod {
+                        public int superClassCalled;
+                        @Inject public void installSuper() {
+                            this.superClassCalled++;
+                        }
+                    }
+                    """,
+            "p.SubClassOverrideSuperClassWithInject", """
+                    package p;
+                    import jakarta.inject.Inject;
+                    public class SubClassOverrideSuperClassWithInject extends SuperClassWithInjectMethod {
+                        @Inject @Override public void installSuper() {
+                            super.installSuper();
+                        }
+                    }
+                    """,
+            "p.PrivateFieldInjection", """
+                    package p;
+                    import jakarta.inject.Inject;
+                    public class PrivateFieldInjection {
+                        @Inject private Dependency dependency;
+                    }
+                    """,
+            "p.QualifiedInjection", """
+                    package p;
+                    import jakarta.inject.Inject;
+                    import jakarta.inject.Named;
+                    public class QualifiedInjection {
+                        @Inject @Named("ChosenOne") Dependency dependency;
+                    }
+                    """,
+            "p.Outer", """
+                    package p;
+                    import jakarta.inject.Inject;
+                    public class Outer {
+                        public static class Inner {
+                            @Inject public Inner() {}
+                        }
+                        public class Member {
+                            @Inject Dependency dependency;
+                        }
+                        Object local() {
+                            class Local {
+                                @Inject Object dependency;
+                            }
+                            return new Object() {
+                                @Inject Object dependency;
+                            };
+                        }
+                    }
+                    """,
+            "p.Outer_Inner", """
+                    package p;
+                    import jakarta.inject.Inject;
+                    public class Outer_Inner {
+                        @Inject public Outer_Inner() {}
+                    }
+                    """,
+            "p.Thrower", """
+                    package p;
+                    import jakarta.inject.Inject;
+                    public class Thrower {
+                        @Inject public Thrower() throws java.io.IOException {
+                            throw new java.io.IOException("constructor");
+                        }
+                        @Inject void install() throws Exception {
+                        }
+                    }
+                    """);
+
+    private static Path output;
+    private static URLClassLoader loader;
+
+    @BeforeAll
+    public static void compile() throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        output = Files.createTempDirectory("factories");
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(diagnostics, null, null)) {
+            List<JavaFileObject> units = COMPONENTS.entrySet().stream().<JavaFileObject>map(source ->
+                    new SimpleJavaFileObject(URI.create("string:///" + source.getKey().replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+                        @Override
+                        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                            return source.getValue();
+                        }
+                    }).toList();
+            boolean compiled = compiler.getTask(null, files, diagnostics, List.of("-d", output.toString(), "-s", output.toString(),
+                    "-classpath", System.getProperty("java.class.path"), "-processor", ComponentFactoryProcessor.class.getName()), null, units).call();
+            assertTrue(compiled, diagnostics.getDiagnostics().toString());
+        }
+        loader = new URLClassLoader(new URL[]{output.toUri().toURL()}, ComponentFactoryTest.class.getClassLoader());
+    }
+
+    @AfterAll
+    public static void close() throws IOException {
+        loader.close();
+    }
+
+    @Test
+    public void should_generate_factory_for_injectable_component() throws Exception {
+        ComponentFactory<?> factory = factoryOf("p.FieldAndMethodInjection").orElseThrow();
+
+        assertEquals(new InjectionProvider<>(loader.loadClass("p.FieldAndMethodInjection")).getDependencies(), factory.getDependencies());
+    }
+
+    @Test
+    public void should_inject_dependencies_with_generated_factory() throws Exception {
+        Class<?> type = loader.loadClass("p.Dependency");
+        Object dependency = mock(type);
+        Context context = mock(Context.class);
+        when(context.get(eq(ComponentRef.of(type)))).thenReturn((Optional) Optional.of(dependency));
+
+        Object component = factoryOf("p.FieldAndMethodInjection").orElseThrow().get(context);
+
+        assertSame(dependency, component.getClass().getField("field").get(component));
+        assertSame(dependency, component.getClass().getField("method").get(component));
+    }
+
+    @Test
+    public void should_only_call_overridden_inject_method_once_with_generated_factory() throws Exception {
+        Context context = mock(Context.class);
+
+        Object component = factoryOf("p.SubClassOverrideSuperClassWithInject").orElseThrow().get(context);
+
+        assertEquals(1, component.getClass().getField("superClassCalled").get(component));
+    }
+
+    @Test
+    public void should_not_generate_factory_if_injection_point_not_accessible() throws Exception {
+        assertTrue(factoryOf("p.PrivateFieldInjection").isEmpty());
+    }
+
+    @Test
+    public void should_not_generate_factory_if_injection_point_qualified() throws Exception {
+        assertTrue(factoryOf("p.QualifiedInjection").isEmpty());
+    }
+
+    @Test
+    public void should_not_generate_factory_for_inner_class() throws Exception {
+        assertTrue(factoryOf("p.Outer$Member").isEmpty());
+    }
+
+    @Test
+    public void should_compile_generated_factories_of_nested_local_and_anonymous_classes() throws Exception {
+        try (Stream<Path> paths = Files.walk(output)) {
+            List<String> generated = paths.filter(path -> path.toString().endsWith(".java")).
+                    map(path -> output.relativize(path).toString().replace(File.separatorChar, '/')).sorted().toList();
+
+            assertTrue(generated.containsAll(List.of("p/Outer$Inner$$Factory.java", "p/Outer_Inner$$Factory.java")), generated.toString());
+            assertTrue(generated.stream().noneMatch(name -> name.startsWith("p/Outer$Member") || name.startsWith("p/Outer$1")), generated.toString());
+        }
+    }
+
+    @Test
+    public void should_wrap_checked_exceptions_of_injection_points_in_generated_factory() throws Exception {
+        ComponentFactory<?> factory = factoryOf("p.Thrower").orElseThrow();
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> factory.create(index -> null));
+        assertInstanceOf(IOException.class, exception.getCause());
+    }
+
+    private static Optional<ComponentFactory<?>> factoryOf(String component) throws ReflectiveOperationException {
+        try {
+            return Optional.of((ComponentFactory<?>) loader.loadClass(component + "$$Factory").getConstructor().newInstance());
+        } catch (ClassNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+}
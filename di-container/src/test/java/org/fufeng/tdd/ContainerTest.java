@@ -1,7 +1,22 @@
 package org.fufeng.tdd;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class ContainerTest {
 
@@ -15,16 +30,271 @@ public class ContainerTest {
     @Nested
     class DependenciesSelection {
 
+        @Test
+        public void should_return_canonical_component_ref() {
+            assertSame(ComponentRef.of(Dependency.class), ComponentRef.of(Dependency.class));
+            assertSame(ComponentRef.of(Dependency.class, new NameLiteral("ChosenOne")), ComponentRef.of(Dependency.class, new NameLiteral("ChosenOne")));
+            assertNotSame(ComponentRef.of(Dependency.class), ComponentRef.of(Dependency.class, new NameLiteral("ChosenOne")));
+        }
+
+        static class NamedField {
+            @jakarta.inject.Named("ChosenOne")
+            Dependency dependency;
+        }
+
+        @Test
+        public void should_treat_annotation_proxy_and_literal_as_same_qualifier() throws NoSuchFieldException {
+            Annotation proxy = NamedField.class.getDeclaredField("dependency").getAnnotation(jakarta.inject.Named.class);
+
+            Component component = new Component(Dependency.class, proxy);
+
+            assertEquals(new Component(Dependency.class, new NameLiteral("ChosenOne")), component);
+            assertEquals(new Component(Dependency.class, new NameLiteral("ChosenOne")).hashCode(), component.hashCode());
+        }
+
+        @Test
+        public void should_retrieve_qualified_component_with_annotation_proxy() throws NoSuchFieldException {
+            Dependency dependency = new Dependency() {
+            };
+            config.bind(Dependency.class, dependency, new NameLiteral("ChosenOne"));
+            Annotation proxy = NamedField.class.getDeclaredField("dependency").getAnnotation(jakarta.inject.Named.class);
+
+            assertSame(dependency, config.getContext().get(ComponentRef.of(Dependency.class, proxy)).get());
+        }
+
         @Nested
         class ProviderType {
 
+            @Test
+            public void should_retrieve_same_provider_for_component() {
+                config.bind(Dependency.class, new Dependency() {
+                });
+                Context context = config.getContext();
+
+                Provider<Dependency> provider = context.get(new ComponentRef<Provider<Dependency>>() {
+                }).get();
+
+                assertSame(provider, context.get(new ComponentRef<Provider<Dependency>>() {
+                }).get());
+            }
         }
 
     }
 
     @Nested
     class LifecycleManagement {
+        static final Queue<String> events = new ConcurrentLinkedQueue<>();
+        static final CountDownLatch destroying = new CountDownLatch(2);
+
+        @BeforeEach
+        public void setup() {
+            events.clear();
+        }
+
+        static class Base {
+            @PostConstruct
+            void initBase() {
+                events.add("base");
+            }
+        }
+
+        static class Initialized extends Base {
+            @Inject
+            Dependency dependency;
+
+            @PostConstruct
+            void init() {
+                events.add(dependency == null ? "not injected" : "initialized");
+            }
+        }
+
+        @Singleton
+        static class Resource implements Dependency {
+            @PreDestroy
+            void release() {
+                events.add("resource");
+            }
+        }
+
+        @Singleton
+        static class Client {
+            @Inject
+            Dependency resource;
+
+            @PreDestroy
+            void release() {
+                events.add("client");
+            }
+        }
+
+        static class Unscoped {
+            @PreDestroy
+            void release() {
+                events.add("unscoped");
+            }
+        }
+
+        @Pooled(size = 2)
+        static class PooledResource {
+            @PreDestroy
+            void release() {
+                events.add("pooled");
+            }
+        }
+
+        @ThreadConfined
+        static class ConfinedResource {
+            @PreDestroy
+            void release() {
+                events.add("confined");
+            }
+        }
+
+        @Singleton
+        static class SlowResource {
+            @PreDestroy
+            void release() throws InterruptedException {
+                destroying.countDown();
+                if (!destroying.await(5, TimeUnit.SECONDS)) throw new IllegalStateException("destroyed serially");
+            }
+        }
+
+        @Singleton
+        static class AnotherSlowResource extends SlowResource {
+        }
+
+        @Singleton
+        static class FailedResource {
+            @PreDestroy
+            void release() {
+                throw new IllegalStateException("failed");
+            }
+        }
 
+        @Singleton
+        static class AnotherFailedResource extends FailedResource {
+        }
+
+        @Test
+        public void should_call_post_construct_after_injection_and_superclass_first() {
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(Initialized.class, Initialized.class);
+
+            config.getContext().get(ComponentRef.of(Initialized.class));
+
+            assertEquals(List.of("base", "initialized"), List.copyOf(events));
+        }
+
+        @Test
+        public void should_call_pre_destroy_of_dependents_before_dependencies() {
+            config.bind(Dependency.class, Resource.class);
+            config.bind(Client.class, Client.class);
+
+            Context context = config.getContext();
+            context.get(ComponentRef.of(Client.class));
+            context.close();
+
+            assertEquals(List.of("client", "resource"), List.copyOf(events));
+        }
+
+        @Test
+        public void should_not_call_pre_destroy_of_unscoped_or_not_created_component() {
+            config.bind(Unscoped.class, Unscoped.class);
+            config.bind(Dependency.class, Resource.class);
+
+            Context context = config.getContext();
+            context.get(ComponentRef.of(Unscoped.class));
+            context.close();
+
+            assertTrue(events.isEmpty());
+        }
+
+        @Test
+        public void should_destroy_pooled_instance_on_overflow_instead_of_retaining_it_until_close() {
+            config.bind(PooledResource.class, PooledResource.class);
+            CompiledContext context = (CompiledContext) config.getContext();
+            ComponentRef<ScopeHandle<PooledResource>> ref = new ComponentRef<>() {
+            };
+
+            for (int i = 0; i < 1000; i++) {
+                try (ScopeHandle<PooledResource> first = context.get(ref).get(); ScopeHandle<PooledResource> second = context.get(ref).get();
+                     ScopeHandle<PooledResource> third = context.get(ref).get()) {
+                    assertNotSame(first.get(), third.get());
+                    assertNotSame(second.get(), third.get());
+                }
+            }
+
+            assertEquals(1, context.destroyables());
+            assertEquals(1000, events.size());
+        }
+
+        @Test
+        public void should_call_pre_destroy_of_idle_pooled_instances_on_close() {
+            config.bind(PooledResource.class, PooledResource.class);
+            Context context = config.getContext();
+            ComponentRef<ScopeHandle<PooledResource>> ref = new ComponentRef<>() {
+            };
+
+            try (ScopeHandle<PooledResource> first = context.get(ref).get(); ScopeHandle<PooledResource> second = context.get(ref).get()) {
+                assertNotSame(first.get(), second.get());
+            }
+            assertTrue(events.isEmpty());
+
+            context.close();
+
+            assertEquals(List.of("pooled", "pooled"), List.copyOf(events));
+        }
+
+        @Test
+        public void should_call_pre_destroy_of_thread_confined_instances_on_close() throws Exception {
+            config.bind(ConfinedResource.class, ConfinedResource.class);
+            Context context = config.getContext();
+            Thread thread = new Thread(() -> context.get(ComponentRef.of(ConfinedResource.class)));
+            thread.start();
+            thread.join();
+
+            assertNotNull(context.get(ComponentRef.of(ConfinedResource.class)).get());
+            assertTrue(events.isEmpty());
+
+            context.close();
+
+            assertEquals(List.of("confined", "confined"), List.copyOf(events));
+        }
+
+        @Test
+        public void should_destroy_independent_components_in_parallel() {
+            config.bind(SlowResource.class, SlowResource.class);
+            config.bind(AnotherSlowResource.class, AnotherSlowResource.class);
+
+            Context context = config.getContext(WarmUp.SERIAL);
+
+            assertDoesNotThrow(context::close);
+        }
+
+        @Test
+        public void should_destroy_every_component_and_report_all_failures() {
+            config.bind(FailedResource.class, FailedResource.class);
+            config.bind(AnotherFailedResource.class, AnotherFailedResource.class);
+            config.bind(Dependency.class, Resource.class);
+
+            Context context = config.getContext(WarmUp.SERIAL);
+            IllegalStateException exception = assertThrows(IllegalStateException.class, context::close);
+
+            assertEquals(1, exception.getSuppressed().length);
+            assertEquals(List.of("resource"), List.copyOf(events));
+        }
+
+        @Test
+        public void should_destroy_component_only_once() {
+            config.bind(Dependency.class, Resource.class);
+
+            Context context = config.getContext(WarmUp.SERIAL);
+            context.close();
+            context.close();
+
+            assertEquals(List.of("resource"), List.copyOf(events));
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -1,11 +1,18 @@
 package org.fufeng.tdd;
 
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import jakarta.inject.Qualifier;
+import jakarta.inject.Singleton;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import java.lang.annotation.Annotation;
@@ -15,7 +22,21 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
@@ -146,142 +167,1776 @@ public class ContextTest {
             assertSame(component, provider.get());
         }
 
+        @Test
+        public void should_retrieve_bind_type_with_resolver() {
+            Dependency dependency = new Dependency() {
+            };
+            config.bind(Dependency.class, dependency);
+            config.bind(TestComponent.class, ConstructorInjection.class);
+
+            Context context = config.getContext();
+            Resolver<TestComponent> resolver = context.resolver(ComponentRef.of(TestComponent.class)).get();
+
+            assertSame(dependency, resolver.get().dependency());
+            assertNotSame(resolver.get(), resolver.get());
+            assertSame(resolver, context.resolver(ComponentRef.of(TestComponent.class)).get());
+        }
+
+        @Test
+        public void should_retrieve_bind_type_as_provider_with_resolver() {
+            TestComponent component = new TestComponent() {
+            };
+            config.bind(TestComponent.class, component);
+
+            Context context = config.getContext();
+            Resolver<Provider<TestComponent>> resolver = context.resolver(new ComponentRef<Provider<TestComponent>>() {
+            }).get();
+
+            assertSame(component, resolver.get().get());
+        }
+
+        @Test
+        public void should_return_empty_resolver_if_component_not_defined() {
+            Context context = config.getContext();
+
+            assertTrue(context.resolver(ComponentRef.of(TestComponent.class)).isEmpty());
+        }
+
         @Test
         public void should_not_retrieve_bind_type_as_unsupported_container() {
             TestComponent component = new TestComponent() {
             };
 
-            config.bind(TestComponent.class, component);
+            config.bind(TestComponent.class, component);
+
+            Context context = config.getContext();
+
+            assertFalse(context.get(new ComponentRef<List<TestComponent>>() {
+            }).isPresent());
+        }
+
+        @Test
+        public void should_not_get_generic_type_from_self_class() {
+            Provider<TestComponent> provider = () -> new TestComponent() {
+            };
+            Type genericSuperclass = provider.getClass().getGenericSuperclass();
+
+            assertEquals(Object.class, genericSuperclass);
+        }
+
+        @Test
+        public void should_get_generic_type_from_class_field() throws NoSuchFieldException {
+            Field componentProviderField = FieldGenericType.class.getDeclaredField("componentProvider");
+
+            ParameterizedType genericType = (ParameterizedType) componentProviderField.getGenericType();
+            //assertEquals(Provider<Component>.class, genericType);
+
+            Type type = genericType.getActualTypeArguments()[0];
+            assertEquals(TestComponent.class, type);
+        }
+
+        static class FieldGenericType {
+            Provider<TestComponent> componentProvider;
+
+        }
+
+        @Test
+        public void should_get_generic_type_from_class_method() throws NoSuchMethodException {
+            Method method =
+                    Arrays.stream(MethodGenericType.class.getDeclaredMethods()).
+                            filter(m -> m.getName().equals("install")).findAny().get();
+
+            Type type = method.getParameters()[0].getParameterizedType();
+
+            if (type instanceof ParameterizedType) {
+                type = ((ParameterizedType) type).getActualTypeArguments()[0];
+            }
+
+            assertEquals(TestComponent.class, type);
+        }
+
+        static class MethodGenericType {
+
+            public void install(Provider<TestComponent> provider) {
+
+            }
+
+        }
+
+        @Nested
+        class WithQualifier {
+            //todo binding component with qualifier
+            @Test
+            public void should_bind_instance_with_qualifier() {
+                TestComponent instance = new TestComponent() {
+                };
+
+                config.bind(TestComponent.class, instance, new NameLiteral("ChoseOne"));
+
+                Context context = config.getContext();
+                TestComponent component = context.get(ComponentRef.of(TestComponent.class, new NameLiteral("ChoseOne"))).get();
+                assertSame(component, instance);
+            }
+
+            @Test
+            public void should_bind_component_with_qualifier() {
+                Dependency dependency = new Dependency() {
+                };
+
+                config.bind(Dependency.class, dependency);
+                config.bind(TestComponent.class, ConstructorInjection.class, new NameLiteral("ChoseOne"));
+
+                Context context = config.getContext();
+                TestComponent component = context.get(ComponentRef.of(TestComponent.class, new NameLiteral("ChoseOne"))).get();
+                assertSame(component.dependency(), dependency);
+            }
+
+            static class QualifiedDependencyInjection implements TestComponent {
+                @Inject
+                @jakarta.inject.Named("ChoseOne")
+                Dependency dependency;
+
+                @Override
+                public <T> T dependency() {
+                    return (T) dependency;
+                }
+            }
+
+            @Test
+            public void should_inject_dependency_with_qualifier() {
+                Dependency chosenOne = new Dependency() {
+                };
+
+                config.bind(Dependency.class, new Dependency() {
+                });
+                config.bind(Dependency.class, chosenOne, new NameLiteral("ChoseOne"));
+                config.bind(TestComponent.class, QualifiedDependencyInjection.class);
+
+                Context context = config.getContext();
+                assertSame(chosenOne, context.get(ComponentRef.of(TestComponent.class)).get().dependency());
+            }
+
+            //todo binding component with multi qualifier
+            @Test
+            public void should_bind_instance_with_multi_qualifiers() {
+                TestComponent instance = new TestComponent() {
+                };
+
+                config.bind(TestComponent.class, instance, new NameLiteral("ChoseOne"), new SkywalkerLiteral());
+
+                Context context = config.getContext();
+                TestComponent choseOne = context.get(ComponentRef.of(TestComponent.class, new NameLiteral("ChoseOne"))).get();
+                TestComponent skywalker = context.get(ComponentRef.of(TestComponent.class, new SkywalkerLiteral())).get();
+                assertSame(choseOne, instance);
+                assertSame(skywalker, instance);
+            }
+
+            @Test
+            public void should_bind_component_with_multi_qualifiers() {
+                Dependency dependency = new Dependency() {
+                };
+
+                config.bind(Dependency.class, dependency);
+                config.bind(TestComponent.class, ConstructorInjection.class, new NameLiteral("ChoseOne"), new SkywalkerLiteral());
+
+                Context context = config.getContext();
+                TestComponent choseOne = context.get(ComponentRef.of(TestComponent.class, new NameLiteral("ChoseOne"))).get();
+                TestComponent skywalker = context.get(ComponentRef.of(TestComponent.class, new SkywalkerLiteral())).get();
+                assertSame(choseOne.dependency(), dependency);
+                assertSame(skywalker .dependency(), dependency);
+            }
+
+            //todo binding illegal component with illegal qualifier
+            @Test
+            public void should_throw_exception_if_illegal_qualifier_given_to_instance() {
+                TestComponent instance = new TestComponent() {
+                };
+
+                assertThrows(IllegalComponentException.class, () -> config.bind(TestComponent.class, instance, new TestLiteral()));
+            }
+
+            @Test
+            public void should_throw_exception_if_illegal_qualifier_given_to_component() {
+                assertThrows(IllegalComponentException.class, () ->  config.bind(InjectConstructor.class, InjectConstructor.class, new TestLiteral()));
+            }
+        }
+
+
+        @Nested
+        class WithScope {
+            @Pooled(size = 2)
+            static class PooledParser {
+            }
+
+            @ThreadConfined
+            static class ConfinedBuffer {
+            }
+
+            @Test
+            public void should_reuse_pooled_instance_after_handle_released() {
+                config.bind(PooledParser.class, PooledParser.class);
+                Context context = config.getContext();
+                ComponentRef<ScopeHandle<PooledParser>> ref = new ComponentRef<>() {
+                };
+
+                ScopeHandle<PooledParser> handle = context.get(ref).get();
+                PooledParser parser = handle.get();
+                handle.close();
+
+                try (ScopeHandle<PooledParser> another = context.get(ref).get()) {
+                    assertSame(parser, another.get());
+                }
+            }
+
+            @Test
+            public void should_not_share_borrowed_pooled_instances() {
+                config.bind(PooledParser.class, PooledParser.class);
+                Context context = config.getContext();
+                ComponentRef<ScopeHandle<PooledParser>> ref = new ComponentRef<>() {
+                };
+
+                try (ScopeHandle<PooledParser> first = context.get(ref).get(); ScopeHandle<PooledParser> second = context.get(ref).get()) {
+                    assertNotSame(first.get(), second.get());
+                }
+            }
+
+            @Test
+            public void should_keep_at_most_pool_size_idle_instances() {
+                config.bind(PooledParser.class, PooledParser.class);
+                Context context = config.getContext();
+                ComponentRef<ScopeHandle<PooledParser>> ref = new ComponentRef<>() {
+                };
+
+                List<ScopeHandle<PooledParser>> handles = List.of(context.get(ref).get(), context.get(ref).get(), context.get(ref).get());
+                Set<PooledParser> released = new HashSet<>();
+                for (ScopeHandle<PooledParser> handle : handles) {
+                    released.add(handle.get());
+                    handle.close();
+                }
+
+                Set<PooledParser> borrowed = new HashSet<>();
+                for (int i = 0; i < 3; i++) borrowed.add(context.get(ref).get().get());
+                borrowed.retainAll(released);
+                assertEquals(2, borrowed.size());
+            }
+
+            @Test
+            public void should_throw_exception_if_pooled_instance_used_after_release() {
+                config.bind(PooledParser.class, PooledParser.class);
+                ScopeHandle<PooledParser> handle = config.getContext().get(new ComponentRef<ScopeHandle<PooledParser>>() {
+                }).get();
+
+                handle.close();
+
+                assertThrows(IllegalStateException.class, handle::get);
+            }
+
+            @Reclaimable
+            static class SoftCache {
+            }
+
+            @Reclaimable(Reclaimable.Strength.WEAK)
+            static class WeakCache {
+            }
+
+            @Test
+            public void should_report_hits_and_misses_of_reclaimable_instance() {
+                ContainerMetrics metrics = new ContainerMetrics();
+                config.instrument(metrics);
+                config.bind(SoftCache.class, SoftCache.class);
+                Context context = config.getContext();
+
+                SoftCache cache = context.get(ComponentRef.of(SoftCache.class)).get();
+
+                assertSame(cache, context.get(ComponentRef.of(SoftCache.class)).get());
+                assertEquals(new CacheStatistics(1, 1, 0), metrics.get(SoftCache.class).get().getCacheStatistics().get());
+            }
+
+            @Test
+            public void should_rebuild_reclaimable_instance_after_eviction() throws Exception {
+                ContainerMetrics metrics = new ContainerMetrics();
+                config.instrument(metrics);
+                config.bind(WeakCache.class, WeakCache.class);
+                Context context = config.getContext();
+                ContainerMetrics.ComponentMetrics component = metrics.get(WeakCache.class).get();
+
+                assertNotNull(context.get(ComponentRef.of(WeakCache.class)).get());
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (component.getCacheStatistics().get().evictions() == 0 && System.nanoTime() < deadline) {
+                    System.gc();
+                    Thread.sleep(10);
+                }
+
+                assertNotNull(context.get(ComponentRef.of(WeakCache.class)).get());
+                assertEquals(new CacheStatistics(0, 2, 1), component.getCacheStatistics().get());
+                assertEquals(2, component.getInstances());
+            }
+
+            @Test
+            public void should_retrieve_same_thread_confined_instance_in_same_thread() throws Exception {
+                config.bind(ConfinedBuffer.class, ConfinedBuffer.class);
+                Context context = config.getContext();
+
+                ConfinedBuffer buffer = context.get(ComponentRef.of(ConfinedBuffer.class)).get();
+                assertSame(buffer, context.get(ComponentRef.of(ConfinedBuffer.class)).get());
+
+                ExecutorService executor = Executors.newSingleThreadExecutor();
+                try {
+                    assertNotSame(buffer, executor.submit(() -> context.get(ComponentRef.of(ConfinedBuffer.class)).get()).get());
+                } finally {
+                    executor.shutdown();
+                }
+            }
+
+            @Test
+            public void should_keep_thread_confined_instance_for_lifetime_of_virtual_thread() throws Exception {
+                config.scope(ThreadConfined.class, provider -> new ThreadConfinedProvider<>(provider, thread -> true));
+                config.bind(ConfinedBuffer.class, ConfinedBuffer.class);
+                Context context = config.getContext();
+
+                ConfinedBuffer buffer = context.get(ComponentRef.of(ConfinedBuffer.class)).get();
+                assertSame(buffer, context.get(ComponentRef.of(ConfinedBuffer.class)).get());
+
+                ExecutorService executor = Executors.newSingleThreadExecutor();
+                try {
+                    assertNotSame(buffer, executor.submit(() -> context.get(ComponentRef.of(ConfinedBuffer.class)).get()).get());
+                } finally {
+                    executor.shutdown();
+                }
+            }
+
+            @Test
+            public void should_reuse_thread_confined_instance_of_ended_virtual_thread() throws Exception {
+                config.scope(ThreadConfined.class, provider -> new ThreadConfinedProvider<>(provider, thread -> true));
+                config.bind(ConfinedBuffer.class, ConfinedBuffer.class);
+                Context context = config.getContext();
+                List<ConfinedBuffer> buffers = new ArrayList<>();
+
+                for (int i = 0; i < 2; i++) {
+                    Thread thread = new Thread(() -> buffers.add(context.get(ComponentRef.of(ConfinedBuffer.class)).get()));
+                    thread.start();
+                    thread.join();
+                }
+
+                assertSame(buffers.get(0), buffers.get(1));
+            }
+
+            static class NotSingleton {
+            }
+
+            @Test
+            public void should_not_be_singleton_scope_by_default() {
+                config.bind(NotSingleton.class, NotSingleton.class);
+                Context context = config.getContext();
+
+                assertNotSame(context.get(ComponentRef.of(NotSingleton.class)).get(), context.get(ComponentRef.of(NotSingleton.class)).get());
+            }
+
+            @Test
+            public void should_bind_component_as_singleton_scoped() {
+                config.bind(NotSingleton.class, NotSingleton.class, new SingletonLiteral());
+                Context context = config.getContext();
+
+                assertSame(context.get(ComponentRef.of(NotSingleton.class)).get(), context.get(ComponentRef.of(NotSingleton.class)).get());
+            }
+
+            @Singleton
+            static class SingletonAnnotated implements Dependency {
+            }
+
+            @Test
+            public void should_retrieve_scope_annotation_from_component() {
+                config.bind(Dependency.class, SingletonAnnotated.class);
+                Context context = config.getContext();
+
+                assertSame(context.get(ComponentRef.of(Dependency.class)).get(), context.get(ComponentRef.of(Dependency.class)).get());
+            }
+
+            @Test
+            public void should_share_singleton_between_qualifiers_of_same_binding() {
+                config.bind(Dependency.class, SingletonAnnotated.class, new NameLiteral("ChosenOne"), new SkywalkerLiteral());
+                Context context = config.getContext();
+
+                assertSame(context.get(ComponentRef.of(Dependency.class, new NameLiteral("ChosenOne"))).get(),
+                        context.get(ComponentRef.of(Dependency.class, new SkywalkerLiteral())).get());
+            }
+
+            @Test
+            public void should_bind_component_as_customized_scope() {
+                NotSingleton instance = new NotSingleton();
+                config.scope(PerRequest.class, provider -> context -> instance);
+                config.bind(NotSingleton.class, NotSingleton.class, new PerRequestLiteral());
+                Context context = config.getContext();
+
+                assertSame(instance, context.get(ComponentRef.of(NotSingleton.class)).get());
+            }
+
+            @Test
+            public void should_throw_exception_if_multi_scope_provided() {
+                config.scope(PerRequest.class, provider -> provider);
+
+                assertThrows(IllegalComponentException.class, () -> config.bind(NotSingleton.class, NotSingleton.class, new SingletonLiteral(), new PerRequestLiteral()));
+            }
+
+            @Singleton
+            @PerRequest
+            static class MultiScopeAnnotated {
+            }
+
+            @Test
+            public void should_throw_exception_if_multi_scope_annotated() {
+                config.scope(PerRequest.class, provider -> provider);
+
+                assertThrows(IllegalComponentException.class, () -> config.bind(MultiScopeAnnotated.class, MultiScopeAnnotated.class));
+            }
+
+            @Test
+            public void should_throw_exception_if_scope_undefined() {
+                assertThrows(IllegalComponentException.class, () -> config.bind(NotSingleton.class, NotSingleton.class, new PerRequestLiteral()));
+            }
+
+            static class CountedSingleton {
+                static final AtomicInteger created = new AtomicInteger();
+
+                public CountedSingleton() {
+                    created.incrementAndGet();
+                }
+            }
+
+            @Singleton
+            static class SingletonDependedOnSingleton {
+                final CountedSingleton dependency;
+
+                @Inject
+                public SingletonDependedOnSingleton(CountedSingleton dependency) {
+                    this.dependency = dependency;
+                }
+            }
+
+            @ParameterizedTest
+            @EnumSource(value = WarmUp.class, names = {"SERIAL", "PARALLEL"})
+            public void should_create_singletons_when_context_warmed_up(WarmUp warmUp) {
+                CountedSingleton.created.set(0);
+                config.bind(CountedSingleton.class, CountedSingleton.class, new SingletonLiteral());
+                config.bind(SingletonDependedOnSingleton.class, SingletonDependedOnSingleton.class);
+
+                Context context = config.getContext(warmUp);
+
+                assertEquals(1, CountedSingleton.created.get());
+                assertSame(context.get(ComponentRef.of(CountedSingleton.class)).get(),
+                        context.get(ComponentRef.of(SingletonDependedOnSingleton.class)).get().dependency);
+                assertEquals(1, CountedSingleton.created.get());
+            }
+
+            @Singleton
+            static class ThreadRecordingSingleton {
+                static final AtomicReference<Thread> creator = new AtomicReference<>();
+
+                public ThreadRecordingSingleton() {
+                    creator.set(Thread.currentThread());
+                }
+            }
+
+            @Test
+            public void should_create_singletons_outside_common_pool_when_warmed_up_in_parallel() {
+                config.bind(ThreadRecordingSingleton.class, ThreadRecordingSingleton.class);
+
+                config.getContext(WarmUp.PARALLEL);
+
+                Thread creator = ThreadRecordingSingleton.creator.get();
+                assertNotSame(Thread.currentThread(), creator);
+                assertFalse(creator instanceof ForkJoinWorkerThread worker && worker.getPool() == ForkJoinPool.commonPool());
+            }
+
+            @Test
+            public void should_not_create_singletons_if_context_not_warmed_up() {
+                CountedSingleton.created.set(0);
+                config.bind(CountedSingleton.class, CountedSingleton.class, new SingletonLiteral());
+
+                config.getContext();
+
+                assertEquals(0, CountedSingleton.created.get());
+            }
+
+            static class SlowSingleton {
+                static final AtomicInteger created = new AtomicInteger();
+
+                public SlowSingleton() throws InterruptedException {
+                    created.incrementAndGet();
+                    Thread.sleep(50);
+                }
+            }
+
+            @Test
+            public void should_create_singleton_only_once_under_concurrent_first_access() throws Exception {
+                SlowSingleton.created.set(0);
+                config.bind(SlowSingleton.class, SlowSingleton.class, new SingletonLiteral());
+                Context context = config.getContext();
+
+                ExecutorService executor = Executors.newFixedThreadPool(8);
+                try {
+                    CountDownLatch start = new CountDownLatch(1);
+                    List<Future<SlowSingleton>> instances = new ArrayList<>();
+                    for (int i = 0; i < 8; i++) {
+                        instances.add(executor.submit(() -> {
+                            start.await();
+                            return context.get(ComponentRef.of(SlowSingleton.class)).get();
+                        }));
+                    }
+                    start.countDown();
+
+                    for (Future<SlowSingleton> instance : instances) {
+                        assertSame(instances.get(0).get(), instance.get());
+                    }
+                    assertEquals(1, SlowSingleton.created.get());
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        }
+    }
+
+
+    @Nested
+    class ChildContext {
+        ContextConfig overrides;
+
+        @BeforeEach
+        public void setup() {
+            overrides = new ContextConfig();
+        }
+
+        @Test
+        public void should_retrieve_component_from_parent() {
+            Dependency dependency = new Dependency() {
+            };
+            config.bind(Dependency.class, dependency);
+
+            Context child = config.getContext().createChild(overrides);
+
+            assertSame(dependency, child.get(ComponentRef.of(Dependency.class)).get());
+        }
+
+        @Test
+        public void should_override_parent_binding_in_child() {
+            Dependency override = new Dependency() {
+            };
+            config.bind(Dependency.class, new Dependency() {
+            });
+            overrides.bind(Dependency.class, override);
+
+            Context child = config.getContext().createChild(overrides);
+
+            assertSame(override, child.get(ComponentRef.of(Dependency.class)).get());
+        }
+
+        @Test
+        public void should_share_singletons_with_parent() {
+            config.bind(Dependency.class, TypeBinding.WithScope.SingletonAnnotated.class);
+            Context parent = config.getContext();
+
+            Context child = parent.createChild(overrides);
+
+            assertSame(parent.get(ComponentRef.of(Dependency.class)).get(), child.get(ComponentRef.of(Dependency.class)).get());
+        }
+
+        @Test
+        public void should_inject_parent_component_into_child_binding() {
+            Dependency dependency = new Dependency() {
+            };
+            config.bind(Dependency.class, dependency);
+            overrides.bind(TestComponent.class, TypeBinding.ConstructorInjection.class);
+
+            Context child = config.getContext().createChild(overrides);
+
+            assertSame(dependency, child.get(ComponentRef.of(TestComponent.class)).get().dependency());
+        }
+
+        @Test
+        public void should_keep_parent_dependencies_for_parent_components() {
+            Dependency dependency = new Dependency() {
+            };
+            config.bind(Dependency.class, dependency);
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            overrides.bind(Dependency.class, new Dependency() {
+            });
+
+            Context child = config.getContext().createChild(overrides);
+
+            assertSame(dependency, child.get(ComponentRef.of(TestComponent.class)).get().dependency());
+        }
+
+        @Test
+        public void should_throw_exception_if_dependency_not_found_in_child_nor_parent() {
+            overrides.bind(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            Context parent = config.getContext();
+
+            DependencyNotFoundException exception = assertThrows(DependencyNotFoundException.class, () -> parent.createChild(overrides));
+
+            assertEquals(Dependency.class, exception.getDependency().type());
+            assertEquals(TestComponent.class, exception.getComponent().type());
+        }
+
+        @Test
+        public void should_throw_exception_if_cyclic_dependencies_found_in_child() {
+            config.bind(AnotherDependency.class, new AnotherDependency() {
+            });
+            overrides.bind(TestComponent.class, ComponentWithInjectConstructor.class);
+            overrides.bind(Dependency.class, DependencyDependencyWithInjectConstructor.class);
+            Context parent = config.getContext();
+
+            assertThrows(CyclicDependenciesException.class, () -> parent.createChild(overrides));
+        }
+    }
+
+    @Nested
+    class Multibinding {
+        static class FirstDependency implements Dependency {
+        }
+
+        static class SecondDependency implements Dependency {
+        }
+
+        @Singleton
+        static class SingletonDependency implements Dependency {
+        }
+
+        static class SetInjection implements TestComponent {
+            final Set<Dependency> dependencies;
+
+            @Inject
+            public SetInjection(Set<Dependency> dependencies) {
+                this.dependencies = dependencies;
+            }
+        }
+
+        static class MapInjection implements TestComponent {
+            @Inject
+            Map<String, Dependency> dependencies;
+        }
+
+        static class IntegerKeyedMapInjection implements TestComponent {
+            @Inject
+            Map<Integer, Dependency> dependencies;
+        }
+
+        static class DependencyDependedOnSet implements Dependency {
+            @Inject
+            Set<TestComponent> components;
+        }
+
+        @Test
+        public void should_retrieve_contributions_as_set_and_list_in_binding_order() {
+            Dependency first = new Dependency() {
+            };
+            Dependency second = new Dependency() {
+            };
+            config.bindIntoSet(Dependency.class, first);
+            config.bindIntoSet(Dependency.class, second);
+
+            Context context = config.getContext();
+
+            assertEquals(List.of(first, second), context.get(new ComponentRef<List<Dependency>>() {
+            }).get());
+            assertEquals(Set.of(first, second), context.get(new ComponentRef<Set<Dependency>>() {
+            }).get());
+        }
+
+        @Test
+        public void should_retrieve_contributions_as_map_by_key() {
+            Dependency first = new Dependency() {
+            };
+            config.bindIntoMap(Dependency.class, "first", first);
+            config.bindIntoMap(Dependency.class, "second", SecondDependency.class);
+
+            Map<String, Dependency> dependencies = config.getContext().get(new ComponentRef<Map<String, Dependency>>() {
+            }).get();
+
+            assertEquals(List.of("first", "second"), List.copyOf(dependencies.keySet()));
+            assertSame(first, dependencies.get("first"));
+            assertTrue(dependencies.get("second") instanceof SecondDependency);
+        }
+
+        @Test
+        public void should_inject_contributions_into_component() {
+            config.bindIntoSet(Dependency.class, FirstDependency.class);
+            config.bindIntoSet(Dependency.class, SecondDependency.class);
+            config.bindIntoMap(Dependency.class, "first", FirstDependency.class);
+            config.bind(SetInjection.class, SetInjection.class);
+            config.bind(MapInjection.class, MapInjection.class);
+
+            Context context = config.getContext();
+
+            assertEquals(Set.of(FirstDependency.class, SecondDependency.class), context.get(ComponentRef.of(SetInjection.class)).get().
+                    dependencies.stream().map(Object::getClass).collect(Collectors.toSet()));
+            assertTrue(context.get(ComponentRef.of(MapInjection.class)).get().dependencies.get("first") instanceof FirstDependency);
+        }
+
+        @Test
+        public void should_not_serve_contributions_as_map_of_other_key_type() {
+            config.bindIntoMap(Dependency.class, "first", FirstDependency.class);
+
+            assertTrue(config.getContext().get(new ComponentRef<Map<Integer, Dependency>>() {
+            }).isEmpty());
+        }
+
+        @Test
+        public void should_throw_exception_if_map_of_other_key_type_injected() {
+            config.bindIntoMap(Dependency.class, "first", FirstDependency.class);
+            config.bind(IntegerKeyedMapInjection.class, IntegerKeyedMapInjection.class);
+
+            DependencyNotFoundException exception = assertThrows(DependencyNotFoundException.class, () -> config.getContext());
+
+            assertEquals(new ComponentRef<Map<Integer, Dependency>>() {
+            }.component(), exception.getDependency());
+        }
+
+        @Test
+        public void should_not_modify_contributions() {
+            config.bindIntoSet(Dependency.class, new Dependency() {
+            });
+            config.bindIntoMap(Dependency.class, "first", new Dependency() {
+            });
+
+            Context context = config.getContext();
+
+            assertThrows(UnsupportedOperationException.class, () -> context.get(new ComponentRef<Set<Dependency>>() {
+            }).get().clear());
+            assertThrows(UnsupportedOperationException.class, () -> context.get(new ComponentRef<Map<String, Dependency>>() {
+            }).get().clear());
+        }
+
+        @Test
+        public void should_reuse_collection_if_all_contributions_are_stable() {
+            config.bindIntoSet(Dependency.class, new Dependency() {
+            });
+            config.bindIntoSet(Dependency.class, SingletonDependency.class);
+
+            Context context = config.getContext();
+            ComponentRef<Set<Dependency>> ref = new ComponentRef<>() {
+            };
+
+            assertSame(context.get(ref).get(), context.get(ref).get());
+        }
+
+        @Test
+        public void should_create_collection_again_if_contribution_not_scoped() {
+            config.bindIntoSet(Dependency.class, FirstDependency.class);
+
+            Context context = config.getContext();
+            ComponentRef<Set<Dependency>> ref = new ComponentRef<>() {
+            };
+
+            assertNotSame(context.get(ref).get().iterator().next(), context.get(ref).get().iterator().next());
+        }
+
+        @Test
+        public void should_throw_exception_if_cyclic_dependencies_found_through_contributions() {
+            config.bindIntoSet(TestComponent.class, SetInjection.class);
+            config.bindIntoSet(Dependency.class, DependencyDependedOnSet.class);
+
+            assertThrows(CyclicDependenciesException.class, () -> config.getContext());
+        }
+
+        @Test
+        public void should_extend_parent_contributions_in_child_context() {
+            Dependency first = new Dependency() {
+            };
+            Dependency second = new Dependency() {
+            };
+            config.bindIntoSet(Dependency.class, first);
+            ContextConfig overrides = new ContextConfig();
+            overrides.bindIntoSet(Dependency.class, second);
+
+            Context parent = config.getContext();
+            Context child = parent.createChild(overrides);
+            ComponentRef<List<Dependency>> ref = new ComponentRef<>() {
+            };
+
+            assertEquals(List.of(first), parent.get(ref).get());
+            assertEquals(List.of(first, second), child.get(ref).get());
+        }
+    }
+
+    @Nested
+    class LazyInjection {
+        static final AtomicInteger created = new AtomicInteger();
+
+        static class Heavy implements Dependency {
+            public Heavy() {
+                created.incrementAndGet();
+            }
+        }
+
+        static class LazyConsumer implements TestComponent {
+            @Inject
+            Lazy<Dependency> dependency;
+        }
+
+        static class DependencyDependedOnLazy implements Dependency {
+            @Inject
+            Lazy<TestComponent> component;
+        }
+
+        @BeforeEach
+        public void setup() {
+            created.set(0);
+        }
+
+        @Test
+        public void should_not_create_lazy_dependency_until_first_use() {
+            config.bind(Dependency.class, Heavy.class);
+            config.bind(LazyConsumer.class, LazyConsumer.class);
+
+            LazyConsumer consumer = config.getContext().get(ComponentRef.of(LazyConsumer.class)).get();
+
+            assertEquals(0, created.get());
+            Dependency dependency = consumer.dependency.get();
+            assertSame(dependency, consumer.dependency.get());
+            assertEquals(1, created.get());
+        }
+
+        @Test
+        public void should_create_lazy_dependency_once_if_accessed_concurrently() throws Exception {
+            config.bind(Dependency.class, Heavy.class);
+            Lazy<Dependency> lazy = config.getContext().get(new ComponentRef<Lazy<Dependency>>() {
+            }).get();
+
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<Dependency>> instances = new ArrayList<>();
+                for (int i = 0; i < 32; i++) instances.add(executor.submit(lazy::get));
+                for (Future<Dependency> instance : instances) assertSame(lazy.get(), instance.get());
+            } finally {
+                executor.shutdown();
+            }
+            assertEquals(1, created.get());
+        }
+
+        @Test
+        public void should_throw_exception_if_lazy_dependency_not_found() {
+            config.bind(LazyConsumer.class, LazyConsumer.class);
+
+            DependencyNotFoundException exception = assertThrows(DependencyNotFoundException.class, () -> config.getContext());
+
+            assertEquals(Dependency.class, exception.getDependency().type());
+        }
+
+        @Test
+        public void should_not_throw_exception_if_cyclic_dependency_through_lazy() {
+            config.bind(TestComponent.class, ComponentWithInjectConstructor.class);
+            config.bind(Dependency.class, DependencyDependedOnLazy.class);
+
+            Context context = config.getContext();
+
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isPresent());
+        }
+    }
+
+    @Nested
+    class AsyncBinding {
+        static class SlowDependencies implements TestComponent {
+            final Dependency dependency;
+            final AnotherDependency anotherDependency;
+
+            @Inject
+            public SlowDependencies(Dependency dependency, AnotherDependency anotherDependency) {
+                this.dependency = dependency;
+                this.anotherDependency = anotherDependency;
+            }
+        }
+
+        static class FutureInjection implements TestComponent {
+            @Inject
+            CompletableFuture<Dependency> dependency;
+        }
+
+        @Singleton
+        static class DependencyHolder {
+            final Dependency dependency;
+
+            @Inject
+            public DependencyHolder(Dependency dependency) {
+                this.dependency = dependency;
+            }
+        }
+
+        @Singleton
+        static class AnotherDependencyHolder {
+            final AnotherDependency dependency;
+
+            @Inject
+            public AnotherDependencyHolder(AnotherDependency dependency) {
+                this.dependency = dependency;
+            }
+        }
+
+        static class ScopedSlowDependencies implements TestComponent {
+            final DependencyHolder dependency;
+            final AnotherDependencyHolder anotherDependency;
+
+            @Inject
+            public ScopedSlowDependencies(DependencyHolder dependency, AnotherDependencyHolder anotherDependency) {
+                this.dependency = dependency;
+                this.anotherDependency = anotherDependency;
+            }
+        }
+
+        static class DependencyDependedOnFuture implements Dependency {
+            @Inject
+            CompletableFuture<TestComponent> component;
+        }
+
+        CountDownLatch started;
+
+        <T> AsyncComponentProvider<T> slow(T instance) {
+            return context -> CompletableFuture.supplyAsync(() -> {
+                started.countDown();
+                try {
+                    if (!started.await(5, TimeUnit.SECONDS)) throw new IllegalStateException("dependencies created serially");
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return instance;
+            });
+        }
+
+        @BeforeEach
+        public void setup() {
+            started = new CountDownLatch(2);
+        }
+
+        @Test
+        public void should_inject_future_of_async_component() throws Exception {
+            Dependency dependency = new Dependency() {
+            };
+            config.bindAsync(Dependency.class, context -> CompletableFuture.completedFuture(dependency));
+            config.bind(FutureInjection.class, FutureInjection.class);
+
+            FutureInjection component = config.getContext().get(ComponentRef.of(FutureInjection.class)).get();
+
+            assertSame(dependency, component.dependency.get());
+        }
+
+        @Test
+        public void should_create_independent_async_dependencies_concurrently() throws Exception {
+            Dependency dependency = new Dependency() {
+            };
+            AnotherDependency anotherDependency = new AnotherDependency() {
+            };
+            config.bindAsync(Dependency.class, slow(dependency));
+            config.bindAsync(AnotherDependency.class, slow(anotherDependency));
+            config.bind(SlowDependencies.class, SlowDependencies.class);
+
+            CompletableFuture<SlowDependencies> future = config.getContext().get(new ComponentRef<CompletableFuture<SlowDependencies>>() {
+            }).get();
+
+            SlowDependencies component = future.get(10, TimeUnit.SECONDS);
+            assertSame(dependency, component.dependency);
+            assertSame(anotherDependency, component.anotherDependency);
+        }
+
+        @Test
+        public void should_create_async_dependencies_behind_singletons_concurrently() {
+            Dependency dependency = new Dependency() {
+            };
+            config.bindAsync(Dependency.class, slow(dependency));
+            config.bindAsync(AnotherDependency.class, slow(new AnotherDependency() {
+            }));
+            config.bind(DependencyHolder.class, DependencyHolder.class);
+            config.bind(AnotherDependencyHolder.class, AnotherDependencyHolder.class);
+            config.bind(ScopedSlowDependencies.class, ScopedSlowDependencies.class);
+            Context context = config.getContext();
+
+            ScopedSlowDependencies component = context.get(ComponentRef.of(ScopedSlowDependencies.class)).get();
+
+            assertSame(dependency, component.dependency.dependency);
+            assertSame(component.dependency, context.get(ComponentRef.of(DependencyHolder.class)).get());
+        }
+
+        @Test
+        public void should_compose_async_dependencies_when_get_component() {
+            config.bindAsync(Dependency.class, slow(new Dependency() {
+            }));
+            config.bindAsync(AnotherDependency.class, slow(new AnotherDependency() {
+            }));
+            config.bind(SlowDependencies.class, SlowDependencies.class);
+
+            assertTrue(config.getContext().get(ComponentRef.of(SlowDependencies.class)).isPresent());
+        }
+
+        @Test
+        public void should_rethrow_exception_from_async_provider() {
+            config.bindAsync(Dependency.class, context -> CompletableFuture.failedFuture(new IllegalStateException()));
+
+            Context context = config.getContext();
+
+            assertThrows(IllegalStateException.class, () -> context.get(ComponentRef.of(Dependency.class)));
+        }
+
+        @Test
+        public void should_throw_exception_if_future_dependency_not_found() {
+            config.bind(FutureInjection.class, FutureInjection.class);
+
+            DependencyNotFoundException exception = assertThrows(DependencyNotFoundException.class, () -> config.getContext());
+
+            assertEquals(Dependency.class, exception.getDependency().type());
+        }
+
+        @Test
+        public void should_throw_exception_if_cyclic_dependencies_found_through_future() {
+            config.bind(TestComponent.class, FutureInjection.class);
+            config.bind(Dependency.class, DependencyDependedOnFuture.class);
+
+            assertThrows(CyclicDependenciesException.class, () -> config.getContext());
+        }
+    }
+
+    @Nested
+    class Instrumentation {
+        ContainerMetrics metrics;
+
+        @BeforeEach
+        public void setup() {
+            metrics = new ContainerMetrics();
+            config.instrument(metrics);
+        }
+
+        static class Instance implements Dependency {
+        }
+
+        @Test
+        public void should_count_instances_per_component() {
+            config.bind(Dependency.class, Instance.class);
+            config.bind(AnotherDependency.class, new AnotherDependency() {
+            });
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class, new SingletonLiteral());
+
+            Context context = config.getContext();
+            context.get(ComponentRef.of(Dependency.class));
+            context.get(ComponentRef.of(TestComponent.class));
+            context.get(ComponentRef.of(TestComponent.class));
+
+            assertEquals(2, metrics.get(Dependency.class).get().getInstances());
+            assertEquals(1, metrics.get(TestComponent.class).get().getInstances());
+            assertEquals(0, metrics.get(AnotherDependency.class).map(ContainerMetrics.ComponentMetrics::getInstances).orElse(0L));
+            assertEquals(1, metrics.getContextsBuilt());
+        }
+
+        @Test
+        public void should_record_resolution_depth_and_time() {
+            config.bind(Dependency.class, Instance.class);
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class);
+
+            config.getContext().get(ComponentRef.of(TestComponent.class));
+
+            ContainerMetrics.ComponentMetrics dependency = metrics.get(Dependency.class).get();
+            ContainerMetrics.ComponentMetrics component = metrics.get(TestComponent.class).get();
+            assertEquals(1, dependency.getCumulativeDepth());
+            assertEquals(0, component.getCumulativeDepth());
+            assertTrue(component.getTotalTime().compareTo(dependency.getTotalTime()) >= 0);
+            assertEquals(1, Arrays.stream(component.getHistogram()).sum());
+        }
+
+        @Test
+        public void should_emit_flight_recorder_events() throws Exception {
+            config.bind(Dependency.class, Instance.class, new NameLiteral("instance"));
+
+            List<RecordedEvent> events;
+            try (Recording recording = new Recording()) {
+                recording.enable("org.fufeng.tdd.ComponentCreated");
+                recording.enable("org.fufeng.tdd.ContextBuilt");
+                recording.start();
+                config.getContext().get(ComponentRef.of(Dependency.class, new NameLiteral("instance")));
+                recording.stop();
+                Path file = Files.createTempFile("container", ".jfr");
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+                Files.delete(file);
+            }
+
+            RecordedEvent created = events.stream().filter(it -> it.getEventType().getName().equals("org.fufeng.tdd.ComponentCreated")).findFirst().get();
+            assertEquals(Dependency.class.getName(), created.getString("component"));
+            assertTrue(created.getString("qualifier").contains("instance"));
+            assertTrue(events.stream().anyMatch(it -> it.getEventType().getName().equals("org.fufeng.tdd.ContextBuilt") && it.getInt("bindings") == 1));
+        }
+
+        @Test
+        public void should_emit_flight_recorder_events_without_metrics() throws Exception {
+            ContextConfig config = new ContextConfig();
+            config.bind(Dependency.class, Instance.class);
+
+            List<RecordedEvent> events;
+            try (Recording recording = new Recording()) {
+                recording.enable("org.fufeng.tdd.ComponentCreated");
+                recording.start();
+                config.getContext().get(ComponentRef.of(Dependency.class));
+                recording.stop();
+                Path file = Files.createTempFile("container", ".jfr");
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+                Files.delete(file);
+            }
+
+            assertTrue(events.stream().anyMatch(it -> it.getEventType().getName().equals("org.fufeng.tdd.ComponentCreated") &&
+                    it.getString("component").equals(Dependency.class.getName())));
+        }
+    }
+
+    @Nested
+    class StartupSnapshot {
+        @TempDir
+        Path directory;
+
+        @Test
+        public void should_write_snapshot_when_get_context() {
+            Path snapshot = directory.resolve("context.snapshot");
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class);
+
+            Context context = config.getContext(snapshot);
+
+            assertTrue(Files.exists(snapshot));
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isPresent());
+        }
+
+        @Test
+        public void should_get_context_from_snapshot_if_fingerprint_matches() throws Exception {
+            Path snapshot = directory.resolve("context.snapshot");
+            ContextConfig first = new ContextConfig();
+            first.bind(Dependency.class, new Dependency() {
+            });
+            first.bind(TestComponent.class, TypeBinding.ConstructorInjection.class, new SingletonLiteral());
+            first.getContext(snapshot);
+            FileTime written = FileTime.fromMillis(0);
+            Files.setLastModifiedTime(snapshot, written);
+
+            Dependency dependency = new Dependency() {
+            };
+            config.bind(Dependency.class, dependency);
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class, new SingletonLiteral());
+            Context context = config.getContext(snapshot, WarmUp.SERIAL);
+
+            assertEquals(written, Files.getLastModifiedTime(snapshot));
+            assertSame(dependency, context.get(ComponentRef.of(TestComponent.class)).get().dependency());
+        }
+
+        @Test
+        public void should_check_dependencies_if_bindings_changed_since_snapshot() {
+            Path snapshot = directory.resolve("context.snapshot");
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            config.getContext(snapshot);
+
+            ContextConfig changed = new ContextConfig();
+            changed.bind(TestComponent.class, TypeBinding.ConstructorInjection.class);
+
+            assertThrows(DependencyNotFoundException.class, () -> changed.getContext(snapshot));
+        }
+
+        @Test
+        public void should_get_context_if_snapshot_cannot_be_written() throws Exception {
+            Path snapshot = Files.createFile(directory.resolve("file")).resolve("context.snapshot");
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class);
+
+            Context context = config.getContext(snapshot);
+
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isPresent());
+            assertFalse(Files.exists(snapshot));
+        }
+
+        @Test
+        public void should_ignore_corrupted_snapshot() throws Exception {
+            Path snapshot = directory.resolve("context.snapshot");
+            Files.write(snapshot, new byte[]{1, 2, 3});
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class);
+
+            Context context = config.getContext(snapshot);
+
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isPresent());
+            assertTrue(Files.size(snapshot) > 3);
+        }
+    }
+
+    @Nested
+    class ConcurrentResolution {
+        static class SharedDependency implements Dependency {
+            static final AtomicInteger created = new AtomicInteger();
+
+            public SharedDependency() {
+                created.incrementAndGet();
+            }
+        }
+
+        static class Consumer {
+            final Dependency dependency;
+            final TestComponent component;
+
+            @Inject
+            public Consumer(Dependency dependency, TestComponent component) {
+                this.dependency = dependency;
+                this.component = component;
+            }
+        }
+
+        private ExecutorService executor() throws Exception {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (NoSuchMethodException e) {
+                return Executors.newFixedThreadPool(64);
+            }
+        }
+
+        @Test
+        public void should_share_singletons_across_threads_resolving_overlapping_graphs() throws Exception {
+            SharedDependency.created.set(0);
+            config.bind(Dependency.class, SharedDependency.class, new SingletonLiteral());
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class, new SingletonLiteral());
+            config.bind(Consumer.class, Consumer.class);
+            Context context = config.getContext();
+
+            ExecutorService executor = executor();
+            try {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Consumer>> consumers = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    consumers.add(executor.submit(() -> {
+                        start.await();
+                        return context.get(ComponentRef.of(Consumer.class)).get();
+                    }));
+                }
+                start.countDown();
+
+                Set<Object> dependencies = Collections.newSetFromMap(new IdentityHashMap<>());
+                Set<Object> components = Collections.newSetFromMap(new IdentityHashMap<>());
+                for (Future<Consumer> consumer : consumers) {
+                    dependencies.add(consumer.get().dependency);
+                    components.add(consumer.get().component);
+                }
+                assertEquals(1, dependencies.size());
+                assertEquals(1, components.size());
+                assertEquals(1, SharedDependency.created.get());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        public void should_serve_complete_version_while_live_context_refreshes() throws Exception {
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            config.bind(Consumer.class, Consumer.class);
+            LiveContext context = config.getLiveContext();
+
+            ExecutorService executor = executor();
+            try {
+                List<Future<Integer>> readers = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    readers.add(executor.submit(() -> {
+                        int inconsistent = 0;
+                        for (int j = 0; j < 200; j++) {
+                            Consumer consumer = context.get(ComponentRef.of(Consumer.class)).get();
+                            if (consumer.component.dependency() != consumer.dependency) inconsistent++;
+                        }
+                        return inconsistent;
+                    }));
+                }
+                for (int i = 0; i < 20; i++) {
+                    config.bind(Dependency.class, new Dependency() {
+                    });
+                    context.refresh();
+                }
+                for (Future<Integer> reader : readers) assertEquals(0, reader.get());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Nested
+    class GenericKeys {
+        interface Repository<T> {
+        }
+
+        record User() {
+        }
+
+        record Order() {
+        }
+
+        static class UserRepository implements Repository<User> {
+        }
+
+        static class OrderRepository implements Repository<Order> {
+        }
+
+        static class Service {
+            Repository<User> users;
+            Repository<Order> orders;
+
+            @Inject
+            public Service(Repository<User> users, Provider<Repository<Order>> orders) {
+                this.users = users;
+                this.orders = orders.get();
+            }
+        }
+
+        @Test
+        public void should_bind_parameterized_types_separately() {
+            config.bind(new ComponentRef<Repository<User>>() {
+            }, UserRepository.class);
+            config.bind(new ComponentRef<Repository<Order>>() {
+            }, OrderRepository.class);
+
+            Context context = config.getContext();
+
+            assertInstanceOf(UserRepository.class, context.get(new ComponentRef<Repository<User>>() {
+            }).get());
+            assertInstanceOf(OrderRepository.class, context.get(new ComponentRef<Repository<Order>>() {
+            }).get());
+        }
+
+        @Test
+        public void should_inject_parameterized_types_and_their_containers() {
+            config.bind(new ComponentRef<Repository<User>>() {
+            }, UserRepository.class);
+            config.bind(new ComponentRef<Repository<Order>>() {
+            }, OrderRepository.class);
+            config.bind(Service.class, Service.class);
+
+            Service service = config.getContext().get(ComponentRef.of(Service.class)).get();
+
+            assertInstanceOf(UserRepository.class, service.users);
+            assertInstanceOf(OrderRepository.class, service.orders);
+        }
+
+        @Test
+        public void should_bind_nested_and_wildcard_types() {
+            Repository<List<? extends Dependency>> repository = new Repository<>() {
+            };
+            config.bind(new ComponentRef<Repository<List<? extends Dependency>>>() {
+            }, repository);
+
+            Context context = config.getContext();
+
+            assertSame(repository, context.get(new ComponentRef<Repository<List<? extends Dependency>>>() {
+            }).get());
+            assertTrue(context.get(new ComponentRef<Repository<List<Dependency>>>() {
+            }).isEmpty());
+        }
+
+        @Test
+        public void should_bind_parameterized_types_in_module() {
+            config.bindAll(new ComponentModule().
+                    bind(new ComponentRef<Repository<User>>() {
+                    }, UserRepository.class).
+                    bind(new ComponentRef<Repository<Order>>() {
+                    }, new OrderRepository(), new NameLiteral("orders")));
 
             Context context = config.getContext();
 
-            assertFalse(context.get(new ComponentRef<List<TestComponent>>() {
+            assertTrue(context.get(new ComponentRef<Repository<User>>() {
             }).isPresent());
+            assertTrue(context.get(ComponentRef.of(new ComponentRef<Repository<Order>>() {
+            }.component().type(), new NameLiteral("orders"))).isPresent());
         }
 
         @Test
-        public void should_not_get_generic_type_from_self_class() {
-            Provider<TestComponent> provider = () -> new TestComponent() {
-            };
-            Type genericSuperclass = provider.getClass().getGenericSuperclass();
+        public void should_throw_exception_if_binding_container_type() {
+            assertThrows(IllegalComponentException.class, () -> config.bind(new ComponentRef<Provider<Repository<User>>>() {
+            }, () -> new UserRepository()));
+        }
 
-            assertEquals(Object.class, genericSuperclass);
+        @Test
+        public void should_report_missing_parameterized_dependency() {
+            config.bind(new ComponentRef<Repository<User>>() {
+            }, UserRepository.class);
+            config.bind(Service.class, Service.class);
+
+            DependencyNotFoundException exception = assertThrows(DependencyNotFoundException.class, () -> config.getContext());
+
+            assertEquals(new ComponentRef<Repository<Order>>() {
+            }.component(), exception.getDependency());
         }
 
         @Test
-        public void should_get_generic_type_from_class_field() throws NoSuchFieldException {
-            Field componentProviderField = FieldGenericType.class.getDeclaredField("componentProvider");
+        public void should_intern_structurally_equal_types() throws Exception {
+            Type reflected = Service.class.getDeclaredField("users").getGenericType();
 
-            ParameterizedType genericType = (ParameterizedType) componentProviderField.getGenericType();
-            //assertEquals(Provider<Component>.class, genericType);
+            Component component = new ComponentRef<Repository<User>>() {
+            }.component();
 
-            Type type = genericType.getActualTypeArguments()[0];
-            assertEquals(TestComponent.class, type);
+            assertSame(component.type(), new Component(reflected, null).type());
+            assertEquals(reflected, component.type());
+            assertEquals(reflected.hashCode(), component.type().hashCode());
         }
+    }
 
-        static class FieldGenericType {
-            Provider<TestComponent> componentProvider;
+    @Nested
+    class ModuleBinding {
+        @Test
+        public void should_bind_all_declarations_of_module() {
+            Dependency dependency = new Dependency() {
+            };
+            config.bindAll(new ComponentModule().
+                    bind(Dependency.class, dependency).
+                    bind(TestComponent.class, TypeBinding.ConstructorInjection.class, new NameLiteral("one"), new SkywalkerLiteral()));
+
+            Context context = config.getContext();
 
+            assertSame(dependency, context.get(ComponentRef.of(TestComponent.class, new NameLiteral("one"))).get().dependency());
+            assertSame(dependency, context.get(ComponentRef.of(TestComponent.class, new SkywalkerLiteral())).get().dependency());
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isEmpty());
         }
 
         @Test
-        public void should_get_generic_type_from_class_method() throws NoSuchMethodException {
-            Method method =
-                    Arrays.stream(MethodGenericType.class.getDeclaredMethods()).
-                            filter(m -> m.getName().equals("install")).findAny().get();
+        public void should_bind_scope_declared_in_module() {
+            config.bindAll(new ComponentModule().
+                    bind(Dependency.class, new Dependency() {
+                    }).
+                    bind(TestComponent.class, TypeBinding.ConstructorInjection.class, new SingletonLiteral()));
 
-            Type type = method.getParameters()[0].getParameterizedType();
+            Context context = config.getContext();
 
-            if (type instanceof ParameterizedType) {
-                type = ((ParameterizedType) type).getActualTypeArguments()[0];
+            assertSame(context.get(ComponentRef.of(TestComponent.class)).get(), context.get(ComponentRef.of(TestComponent.class)).get());
+        }
+
+        @Test
+        public void should_build_providers_of_module_on_executor() {
+            ComponentModule module = new ComponentModule(65);
+            module.bind(Dependency.class, new Dependency() {
+            });
+            for (int i = 0; i < 64; i++) module.bind(TestComponent.class, TypeBinding.FieldInjection.class, new NameLiteral("c" + i));
+            AtomicInteger tasks = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                config.bindAll(module, command -> {
+                    tasks.incrementAndGet();
+                    executor.execute(command);
+                });
+            } finally {
+                executor.shutdown();
             }
 
-            assertEquals(TestComponent.class, type);
+            assertEquals(64, tasks.get());
+            for (int i = 0; i < 64; i++) assertTrue(config.components().get(new Component(TestComponent.class, new NameLiteral("c" + i))).resolved());
         }
 
-        static class MethodGenericType {
+        @Test
+        public void should_not_build_providers_of_module_without_executor() {
+            config.bindAll(new ComponentModule().bind(TestComponent.class, TypeBinding.FieldInjection.class));
 
-            public void install(Provider<TestComponent> provider) {
+            assertFalse(config.components().get(new Component(TestComponent.class, null)).resolved());
+        }
 
-            }
+        @Test
+        public void should_throw_exception_if_provider_of_module_cannot_be_built_on_executor() {
+            ComponentModule module = new ComponentModule().bind(ComponentWithMultiInjectConstructor.class, ComponentWithMultiInjectConstructor.class);
 
+            assertThrows(IllegalComponentException.class, () -> config.bindAll(module, Runnable::run));
+            assertTrue(config.components().isEmpty());
         }
 
-        @Nested
-        class WithQualifier {
-            //todo binding component with qualifier
-            @Test
-            public void should_bind_instance_with_qualifier() {
-                TestComponent instance = new TestComponent() {
-                };
+        @Test
+        public void should_not_bind_any_declaration_if_module_is_illegal() {
+            ComponentModule module = new ComponentModule().
+                    bind(Dependency.class, new Dependency() {
+                    }).
+                    bind(TestComponent.class, TypeBinding.ConstructorInjection.class, new TestLiteral());
+
+            assertThrows(IllegalComponentException.class, () -> config.bindAll(module));
+            assertTrue(config.getContext().get(ComponentRef.of(Dependency.class)).isEmpty());
+        }
 
-                config.bind(TestComponent.class, instance, new NameLiteral("ChoseOne"));
+        @Test
+        public void should_throw_exception_if_instance_declared_with_scope() {
+            assertThrows(IllegalComponentException.class, () -> config.bindAll(new ComponentModule().
+                    bind(Dependency.class, new Dependency() {
+                    }, new SingletonLiteral())));
+        }
 
-                Context context = config.getContext();
-                TestComponent component = context.get(ComponentRef.of(TestComponent.class, new NameLiteral("ChoseOne"))).get();
-                assertSame(component, instance);
-            }
+        @Test
+        public void should_throw_exception_if_module_declares_multi_scopes() {
+            assertThrows(IllegalComponentException.class, () -> config.bindAll(new ComponentModule().
+                    bind(TestComponent.class, TypeBinding.ConstructorInjection.class, new SingletonLiteral(), new PerRequestLiteral())));
+        }
 
-            @Test
-            public void should_bind_component_with_qualifier() {
-                Dependency dependency = new Dependency() {
-                };
+        @Test
+        public void should_throw_exception_if_module_declares_unregistered_scope() {
+            assertThrows(IllegalComponentException.class, () -> config.bindAll(new ComponentModule().
+                    bind(TestComponent.class, TypeBinding.ConstructorInjection.class, new PerRequestLiteral())));
+        }
+    }
 
-                config.bind(Dependency.class, dependency);
-                config.bind(TestComponent.class, ConstructorInjection.class, new NameLiteral("ChoseOne"));
+    @Nested
+    class Pruning {
+        @Test
+        public void should_drop_bindings_not_reachable_from_roots() {
+            List<PruningReport> reports = new ArrayList<>();
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(AnotherDependency.class, new AnotherDependency() {
+            });
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class);
 
-                Context context = config.getContext();
-                TestComponent component = context.get(ComponentRef.of(TestComponent.class, new NameLiteral("ChoseOne"))).get();
-                assertSame(component.dependency(), dependency);
-            }
+            Context context = config.getContext(reports::add, ComponentRef.of(TestComponent.class));
 
-            //todo binding component with multi qualifier
-            @Test
-            public void should_bind_instance_with_multi_qualifiers() {
-                TestComponent instance = new TestComponent() {
-                };
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isPresent());
+            assertTrue(context.get(ComponentRef.of(Dependency.class)).isPresent());
+            assertTrue(context.get(ComponentRef.of(AnotherDependency.class)).isEmpty());
+            assertEquals(2, reports.get(0).retained());
+            assertEquals(List.of(new Component(AnotherDependency.class, null)), reports.get(0).pruned());
+        }
 
-                config.bind(TestComponent.class, instance, new NameLiteral("ChoseOne"), new SkywalkerLiteral());
+        @Test
+        public void should_not_introspect_or_check_unreachable_bindings() {
+            List<PruningReport> reports = new ArrayList<>();
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(TestComponent.class, DependencyCheck.MissingDependencyConstructor.class);
+            config.unbind(Dependency.class);
+            config.bind(AnotherDependency.class, new AnotherDependency() {
+            });
 
-                Context context = config.getContext();
-                TestComponent choseOne = context.get(ComponentRef.of(TestComponent.class, new NameLiteral("ChoseOne"))).get();
-                TestComponent skywalker = context.get(ComponentRef.of(TestComponent.class, new SkywalkerLiteral())).get();
-                assertSame(choseOne, instance);
-                assertSame(skywalker, instance);
-            }
+            Context context = config.getContext(reports::add, ComponentRef.of(AnotherDependency.class));
 
-            @Test
-            public void should_bind_component_with_multi_qualifiers() {
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isEmpty());
+            assertEquals(1, reports.get(0).skippedIntrospections());
+            assertEquals(1, reports.get(0).prunedSlots());
+        }
+
+        @Test
+        public void should_keep_bindings_reachable_through_provider() {
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(TestComponent.class, DependencyCheck.MissingDependencyProviderConstructor.class);
+
+            Context context = config.getContext(ComponentRef.of(TestComponent.class));
+
+            assertTrue(context.get(ComponentRef.of(Dependency.class)).isPresent());
+        }
+
+        @Test
+        public void should_keep_contributions_of_collection_root() {
+            Dependency dependency = new Dependency() {
+            };
+            config.bindIntoSet(Dependency.class, dependency);
+            config.bind(TestComponent.class, new TestComponent() {
+            });
+
+            Context context = config.getContext(new ComponentRef<Set<Dependency>>() {
+            });
+
+            assertEquals(Set.of(dependency), context.get(new ComponentRef<Set<Dependency>>() {
+            }).get());
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isEmpty());
+        }
+
+        @Test
+        public void should_check_dependencies_of_reachable_bindings() {
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class);
+
+            DependencyNotFoundException exception = assertThrows(DependencyNotFoundException.class,
+                    () -> config.getContext(ComponentRef.of(TestComponent.class)));
+
+            assertEquals(new Component(Dependency.class, null), exception.getDependency());
+        }
+
+        @Test
+        public void should_throw_exception_if_root_not_bound() {
+            config.bind(Dependency.class, new Dependency() {
+            });
+
+            DependencyNotFoundException exception = assertThrows(DependencyNotFoundException.class,
+                    () -> config.getContext(ComponentRef.of(Dependency.class), ComponentRef.of(TestComponent.class, new NameLiteral("missing"))));
+
+            assertEquals(new Component(TestComponent.class, new NameLiteral("missing")), exception.getDependency());
+            assertNull(exception.getComponent());
+        }
+    }
+
+    @Nested
+    class LiveRebinding {
+        @Test
+        public void should_publish_rebound_component_after_refresh() {
+            Dependency before = new Dependency() {
+            };
+            Dependency after = new Dependency() {
+            };
+            config.bind(Dependency.class, before);
+            LiveContext context = config.getLiveContext();
+
+            config.bind(Dependency.class, after);
+            assertSame(before, context.get(ComponentRef.of(Dependency.class)).get());
+
+            context.refresh();
+            assertSame(after, context.get(ComponentRef.of(Dependency.class)).get());
+        }
+
+        @Test
+        public void should_resolve_current_version_with_resolver_held_across_refresh() {
+            Dependency before = new Dependency() {
+            };
+            Dependency after = new Dependency() {
+            };
+            config.bind(Dependency.class, before);
+            LiveContext context = config.getLiveContext();
+            Resolver<Dependency> resolver = context.resolver(ComponentRef.of(Dependency.class)).get();
+            assertSame(before, resolver.get());
+
+            config.bind(Dependency.class, after);
+            context.refresh();
+
+            assertSame(after, resolver.get());
+        }
+
+        @Test
+        public void should_rebuild_dependents_of_rebound_component() {
+            Dependency after = new Dependency() {
+            };
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class, new SingletonLiteral());
+            LiveContext context = config.getLiveContext();
+            TestComponent component = context.get(ComponentRef.of(TestComponent.class)).get();
+
+            config.bind(Dependency.class, after);
+            context.refresh();
+
+            TestComponent rebuilt = context.get(ComponentRef.of(TestComponent.class)).get();
+            assertNotSame(component, rebuilt);
+            assertSame(after, rebuilt.dependency());
+        }
+
+        @Test
+        public void should_keep_singletons_not_affected_by_rebinding() {
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class, new SingletonLiteral());
+            LiveContext context = config.getLiveContext();
+            TestComponent component = context.get(ComponentRef.of(TestComponent.class)).get();
+
+            config.bind(AnotherDependency.class, new AnotherDependency() {
+            });
+            context.refresh();
+
+            assertSame(component, context.get(ComponentRef.of(TestComponent.class)).get());
+            assertTrue(context.get(ComponentRef.of(AnotherDependency.class)).isPresent());
+        }
+
+        @Test
+        public void should_update_collection_when_contribution_added() {
+            Dependency first = new Dependency() {
+            };
+            Dependency second = new Dependency() {
+            };
+            config.bindIntoSet(Dependency.class, first);
+            LiveContext context = config.getLiveContext();
+
+            config.bindIntoSet(Dependency.class, second);
+            context.refresh();
+
+            assertEquals(Set.of(first, second), context.get(new ComponentRef<Set<Dependency>>() {
+            }).get());
+        }
+
+        @Test
+        public void should_reuse_slots_of_replaced_bindings() {
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class, new SingletonLiteral());
+            LiveContext context = config.getLiveContext();
+            int size = context.version().size();
+
+            for (int i = 0; i < 100; i++) {
                 Dependency dependency = new Dependency() {
                 };
-
                 config.bind(Dependency.class, dependency);
-                config.bind(TestComponent.class, ConstructorInjection.class, new NameLiteral("ChoseOne"), new SkywalkerLiteral());
-
-                Context context = config.getContext();
-                TestComponent choseOne = context.get(ComponentRef.of(TestComponent.class, new NameLiteral("ChoseOne"))).get();
-                TestComponent skywalker = context.get(ComponentRef.of(TestComponent.class, new SkywalkerLiteral())).get();
-                assertSame(choseOne.dependency(), dependency);
-                assertSame(skywalker .dependency(), dependency);
+                context.refresh();
+                assertSame(dependency, context.get(ComponentRef.of(TestComponent.class)).get().dependency());
             }
 
-            //todo binding illegal component with illegal qualifier
-            @Test
-            public void should_throw_exception_if_illegal_qualifier_given_to_instance() {
-                TestComponent instance = new TestComponent() {
-                };
+            assertEquals(size, context.version().size());
+        }
 
-                assertThrows(IllegalComponentException.class, () -> config.bind(TestComponent.class, instance, new TestLiteral()));
-            }
+        @Test
+        public void should_serve_collections_contributed_after_publishing() {
+            Dependency dependency = new Dependency() {
+            };
+            LiveContext context = config.getLiveContext();
 
-            @Test
-            public void should_throw_exception_if_illegal_qualifier_given_to_component() {
-                assertThrows(IllegalComponentException.class, () ->  config.bind(InjectConstructor.class, InjectConstructor.class, new TestLiteral()));
+            config.bindIntoSet(Dependency.class, dependency);
+            config.bindIntoMap(Dependency.class, "first", dependency);
+            context.refresh();
+
+            assertEquals(Set.of(dependency), context.get(new ComponentRef<Set<Dependency>>() {
+            }).get());
+            assertEquals(Map.of("first", dependency), context.get(new ComponentRef<Map<String, Dependency>>() {
+            }).get());
+        }
+
+        @Singleton
+        static class DestroyableDependency implements Dependency {
+            final AtomicInteger destroyed = new AtomicInteger();
+
+            @PreDestroy
+            void destroy() {
+                destroyed.incrementAndGet();
             }
         }
 
-    }
+        @Test
+        public void should_destroy_singletons_of_earlier_versions_on_close() {
+            config.bind(Dependency.class, DestroyableDependency.class);
+            LiveContext context = config.getLiveContext();
+            DestroyableDependency dependency = (DestroyableDependency) context.get(ComponentRef.of(Dependency.class)).get();
+
+            config.bind(Dependency.class, new Dependency() {
+            });
+            context.refresh();
+            context.close();
+
+            assertEquals(1, dependency.destroyed.get());
+        }
+
+        @Test
+        public void should_keep_published_version_if_unbinding_breaks_dependency() {
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            LiveContext context = config.getLiveContext();
+
+            config.unbind(Dependency.class);
+            DependencyNotFoundException exception = assertThrows(DependencyNotFoundException.class, context::refresh);
+
+            assertEquals(Dependency.class, exception.getDependency().type());
+            assertTrue(context.get(ComponentRef.of(TestComponent.class)).isPresent());
+        }
+
+        @Test
+        public void should_throw_exception_if_rebinding_introduces_cyclic_dependencies() {
+            Dependency dependency = new Dependency() {
+            };
+            config.bind(Dependency.class, dependency);
+            config.bind(TestComponent.class, TypeBinding.ConstructorInjection.class);
+            LiveContext context = config.getLiveContext();
+
+            config.bind(Dependency.class, DependencyCheck.CyclicDependencyConstructor.class);
+            assertThrows(CyclicDependenciesException.class, context::refresh);
+            assertSame(dependency, context.get(ComponentRef.of(Dependency.class)).get());
 
+            config.bind(Dependency.class, dependency);
+            context.refresh();
+            assertSame(dependency, context.get(ComponentRef.of(TestComponent.class)).get().dependency());
+        }
+    }
 
     @Nested
     class DependencyCheck {
@@ -628,6 +2283,38 @@ public class ContextTest {
             assertTrue(classes.contains(AnotherDependency.class));
         }
 
+        @Test
+        public void should_report_all_dependency_problems_in_one_check() {
+            config.bind(TestComponent.class, ComponentWithInjectConstructor.class);
+            config.bind(Dependency.class, DependencyDependencyWithInjectConstructor.class);
+            config.bind(DependencyNotFoundWithFieldInjection.class, DependencyNotFoundWithFieldInjection.class);
+
+            RuntimeException exception = assertThrows(RuntimeException.class, () -> config.getContext());
+
+            List<Throwable> problems = new ArrayList<>(List.of(exception.getSuppressed()));
+            problems.add(exception);
+            assertEquals(2, problems.size());
+            assertTrue(problems.stream().anyMatch(CyclicDependenciesException.class::isInstance));
+            assertTrue(problems.stream().anyMatch(DependencyNotFoundException.class::isInstance));
+        }
+
+        static class ListInjection {
+            @Inject
+            List<Dependency> dependencies;
+        }
+
+        @Test
+        public void should_throw_exception_if_dependency_container_not_supported() {
+            config.bind(Dependency.class, new Dependency() {
+            });
+            config.bind(ListInjection.class, ListInjection.class);
+
+            DependencyNotFoundException exception = assertThrows(DependencyNotFoundException.class, () -> config.getContext());
+
+            assertEquals(Dependency.class, exception.getDependency().type());
+            assertEquals(ListInjection.class, exception.getComponent().type());
+        }
+
         //todo throw exception if dependency not found
         //todo throw exception if cyclic dependency
         //todo provide dependency information for field injection
@@ -764,3 +2451,23 @@ record TestLiteral() implements Test {
         return Test.class;
     }
 }
+
+record SingletonLiteral() implements Singleton {
+    @Override
+    public Class<? extends Annotation> annotationType() {
+        return Singleton.class;
+    }
+}
+
+@Documented
+@Retention(RUNTIME)
+@jakarta.inject.Scope
+@interface PerRequest {
+}
+
+record PerRequestLiteral() implements PerRequest {
+    @Override
+    public Class<? extends Annotation> annotationType() {
+        return PerRequest.class;
+    }
+}
@@ -31,6 +31,20 @@ public class InjectionTest {
         when(context.get(eq(ComponentRef.of(dependencyProviderType)))).thenReturn(Optional.of(dependencyProvider));
     }
 
+    @Test
+    public void should_share_injection_points_between_providers_of_same_component() {
+        InjectionProvider<ComponentWithInjectConstructor> provider = new InjectionProvider<>(ComponentWithInjectConstructor.class);
+        InjectionProvider<ComponentWithInjectConstructor> another = new InjectionProvider<>(ComponentWithInjectConstructor.class);
+
+        assertSame(provider.getDependencies(), another.getDependencies());
+    }
+
+    @Test
+    public void should_throw_exception_every_time_for_illegal_component() {
+        assertThrows(IllegalComponentException.class, () -> new InjectionProvider<>(ComponentWithMultiInjectConstructor.class));
+        assertThrows(IllegalComponentException.class, () -> new InjectionProvider<>(ComponentWithMultiInjectConstructor.class));
+    }
+
     @Nested
     class ConstructorInjection {
 
@@ -139,6 +153,24 @@ public class InjectionTest {
                 assertArrayEquals(new ComponentRef<?>[]{ComponentRef.of(Dependency.class, new NameLiteral("ChosenOne"))}, provider.getDependencies().toArray());
             }
 
+            static class QualifiedInjectConstructor {
+                private final Dependency dependency;
+
+                @Inject
+                public QualifiedInjectConstructor(@Named("ChosenOne") Dependency dependency) {
+                    this.dependency = dependency;
+                }
+            }
+
+            @Test
+            public void should_inject_dependency_with_qualifier() {
+                Dependency chosenOne = mock(Dependency.class);
+                when(context.get(eq(ComponentRef.of(Dependency.class, new NameLiteral("ChosenOne"))))).thenReturn(Optional.of(chosenOne));
+
+                QualifiedInjectConstructor component = new InjectionProvider<>(QualifiedInjectConstructor.class).get(context);
+
+                assertSame(chosenOne, component.dependency);
+            }
 
 
             //todo throw illegal component if illegal qualifier given to injection point